@@ -0,0 +1,100 @@
+package io.vertx.starter;
+
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips through {@link DatabaseVerticle} over the event bus against an in-memory HSQLDB,
+ * seeded with {@code pages} pages, with and without the per-connection prepared statement cache.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+
+    static final String QUEUE = "bench.wikidb.queue";
+
+    @Param({"1000", "10000"})
+    int pages;
+
+    @Param({"0", "50"})
+    int statementCache;
+
+    Vertx vertx;
+
+    @Setup
+    public void setup() throws Exception {
+        vertx = Vertx.vertx();
+        JsonObject config = new JsonObject()
+            .put(JdbcWikiStore.CONFIG_WIKIDB_URL, "jdbc:hsqldb:mem:bench" + System.nanoTime())
+            .put(JdbcWikiStore.CONFIG_WIKIDB_STATEMENT_CACHE_SIZE, statementCache)
+            .put(HttpServerVerticle.CONFIG_WIKIDB_QUEUE, QUEUE)
+            .put("search.enabled", false);
+
+        CompletableFuture<String> deployed = new CompletableFuture<>();
+        vertx.deployVerticle(DatabaseVerticle.class.getName(), new DeploymentOptions().setConfig(config), res -> {
+            if (res.succeeded()) {
+                deployed.complete(res.result());
+            } else {
+                deployed.completeExceptionally(res.cause());
+            }
+        });
+        deployed.get(30, TimeUnit.SECONDS);
+
+        String content = SamplePages.markdown(4096);
+        for (int from = 0; from < pages; from += 500) {
+            List<String> names = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            for (int i = from; i < Math.min(pages, from + 500); i++) {
+                names.add(SamplePages.name(i));
+                contents.add(content);
+            }
+            request(new ImportPages(names, contents)).get(60, TimeUnit.SECONDS);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        vertx.close();
+    }
+
+    @Benchmark
+    public Object getPage() throws Exception {
+        String name = SamplePages.name(ThreadLocalRandom.current().nextInt(pages));
+        return request(new GetPage(name)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Object listFirstPage() throws Exception {
+        return request(new ListPages(null, 100)).get(10, TimeUnit.SECONDS);
+    }
+
+    @Benchmark
+    public Object listFromCursor() throws Exception {
+        String after = SamplePages.name(ThreadLocalRandom.current().nextInt(pages));
+        return request(new ListPages(after, 100)).get(10, TimeUnit.SECONDS);
+    }
+
+    private CompletableFuture<Object> request(WikiMessage msg) {
+        CompletableFuture<Object> reply = new CompletableFuture<>();
+        vertx.eventBus().send(QUEUE, msg, res -> {
+            if (res.succeeded()) {
+                reply.complete(res.result().body());
+            } else {
+                reply.completeExceptionally(res.cause());
+            }
+        });
+        return reply;
+    }
+}
@@ -0,0 +1,405 @@
+package io.vertx.starter;
+
+import com.sun.management.ThreadMXBean;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load generator: boots the wiki against a temporary HSQLDB, seeds it and drives a read/write
+ * mix over http at a fixed arrival rate.
+ * <p>
+ * Requests are scheduled at their intended start time whether or not earlier requests have completed,
+ * and latency is measured from that intended time, so a stalled server shows up in the percentiles
+ * instead of silently lowering the request rate (coordinated omission).
+ * <p>
+ * Usage: {@code java -cp benchmarks.jar io.vertx.starter.LoadTest [config.json]}
+ */
+public class LoadTest {
+    Logger log = LoggerFactory.getLogger(LoadTest.class);
+
+    public static final String CONFIG_RATE = "load.rate";
+    public static final String CONFIG_DURATION_SECONDS = "load.duration-seconds";
+    public static final String CONFIG_WARMUP_SECONDS = "load.warmup-seconds";
+    public static final String CONFIG_PAGES = "load.pages";
+    public static final String CONFIG_PAGE_SIZE = "load.page-size";
+    public static final String CONFIG_CONNECTIONS = "load.connections";
+    public static final String CONFIG_MIX = "load.mix";
+    public static final String CONFIG_SERVER = "load.server";
+    public static final String CONFIG_REPORT_FILE = "load.report-file";
+
+    private static final int SEED_BATCH_SIZE = 500;
+    private static final int SCRATCH_PAGES = 100;
+
+    enum Op {
+        PAGE, INDEX, SAVE, DELETE
+    }
+
+    private final JsonObject config;
+    private final Vertx vertx = Vertx.vertx();
+    private final Map<Op, Histogram> histograms = new EnumMap<>(Op.class);
+    private final Map<Op, Long> errors = new EnumMap<>(Op.class);
+    private final Deque<Integer> scratchIds = new ArrayDeque<>();
+
+    private int[] pageIds;
+    private String wikiDbQueue;
+    private String content;
+    private WebClient client;
+    private int[] weights;
+    private int totalWeight;
+    private long outstanding;
+    private int scratchCounter;
+    private long recordedRequests;
+    private long allocatedAtRecordStart = -1;
+    private long allocatedWhileRecording;
+    private long recordedNanos;
+
+    public LoadTest(JsonObject config) {
+        this.config = config;
+        for (Op op : Op.values()) {
+            histograms.put(op, new Histogram(3));
+            errors.put(op, 0L);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        JsonObject config = args.length > 0
+            ? new JsonObject(new String(Files.readAllBytes(Paths.get(args[0])), "UTF-8"))
+            : new JsonObject();
+        new LoadTest(config).run();
+    }
+
+    public void run() throws Exception {
+        JsonObject mix = config.getJsonObject(CONFIG_MIX, new JsonObject()
+            .put("page", 80).put("index", 10).put("save", 8).put("delete", 2));
+        weights = new int[Op.values().length];
+        for (Op op : Op.values()) {
+            weights[op.ordinal()] = mix.getInteger(op.name().toLowerCase(), 0);
+            totalWeight += weights[op.ordinal()];
+        }
+        if (totalWeight <= 0) {
+            throw new IllegalArgumentException("'" + CONFIG_MIX + "' has no positive weight");
+        }
+        content = SamplePages.markdown(config.getInteger(CONFIG_PAGE_SIZE, 4096));
+
+        JsonObject server = config.getJsonObject(CONFIG_SERVER, new JsonObject());
+        Path dbDir = Files.createTempDirectory("wiki-load");
+        server.put(JdbcWikiStore.CONFIG_WIKIDB_URL, server.getString(JdbcWikiStore.CONFIG_WIKIDB_URL,
+            "jdbc:hsqldb:file:" + dbDir.resolve("wiki") + ";shutdown=true"));
+        int port = server.getInteger(HttpServerVerticle.CONFIG_HTTP_SERVER_PORT, 8080);
+        wikiDbQueue = server.getString(HttpServerVerticle.CONFIG_WIKIDB_QUEUE, HttpServerVerticle.CONFIG_WIKIDB_QUEUE);
+
+        client = WebClient.create(vertx, new WebClientOptions()
+            .setDefaultHost("localhost")
+            .setDefaultPort(port)
+            .setFollowRedirects(false)
+            .setKeepAlive(true)
+            .setMaxPoolSize(config.getInteger(CONFIG_CONNECTIONS, 64)));
+
+        try {
+            await(deploy(server).compose(v -> seed()));
+            // all requests are sent and completed on one context, so the counters need no synchronization
+            Future<Void> driven = Future.future();
+            vertx.getOrCreateContext().runOnContext(v -> drive().setHandler(driven.completer()));
+            await(driven);
+            report();
+        } finally {
+            client.close();
+            CountDownLatch closed = new CountDownLatch(1);
+            vertx.close(v -> closed.countDown());
+            closed.await(30, TimeUnit.SECONDS);
+            deleteRecursively(dbDir);
+        }
+    }
+
+    private Future<Void> deploy(JsonObject server) {
+        Future<String> deployed = Future.future();
+        vertx.deployVerticle(MainVerticle.class.getName(), new DeploymentOptions().setConfig(server), deployed.completer());
+        return deployed.map(id -> null);
+    }
+
+    /**
+     * Imports the pages over the event bus, then looks their ids up for the save and delete requests.
+     */
+    private Future<Void> seed() {
+        int pages = config.getInteger(CONFIG_PAGES, 1000);
+        log.info("Seeding {} pages", pages);
+        List<String> names = SamplePages.names(pages);
+        for (int i = 0; i < SCRATCH_PAGES; i++) {
+            names.add(scratchName());
+        }
+
+        Future<Void> imported = Future.succeededFuture();
+        for (int from = 0; from < names.size(); from += SEED_BATCH_SIZE) {
+            List<String> batch = names.subList(from, Math.min(names.size(), from + SEED_BATCH_SIZE));
+            imported = imported.compose(v -> {
+                List<String> contents = new ArrayList<>(batch.size());
+                batch.forEach(name -> contents.add(content));
+                Future<Void> done = Future.future();
+                vertx.eventBus().send(wikiDbQueue, new ImportPages(new ArrayList<>(batch), contents), reply -> {
+                    if (reply.succeeded()) {
+                        done.complete();
+                    } else {
+                        done.fail(reply.cause());
+                    }
+                });
+                return done;
+            });
+        }
+
+        pageIds = new int[pages];
+        return imported.compose(v -> {
+            List<Future> lookups = new ArrayList<>(names.size());
+            for (int i = 0; i < names.size(); i++) {
+                int index = i;
+                lookups.add(pageId(names.get(i)).map(id -> {
+                    if (index < pages) {
+                        pageIds[index] = id;
+                    } else {
+                        scratchIds.add(id);
+                    }
+                    return null;
+                }));
+            }
+            return CompositeFuture.all(lookups).map((Void) null);
+        });
+    }
+
+    private Future<Integer> pageId(String name) {
+        Future<Integer> id = Future.future();
+        vertx.eventBus().<PageResult>send(wikiDbQueue, new GetPage(name), reply -> {
+            if (reply.failed()) {
+                id.fail(reply.cause());
+            } else if (!reply.result().body().isFound()) {
+                id.fail("Page '" + name + "' not found");
+            } else {
+                id.complete(reply.result().body().getId());
+            }
+        });
+        return id;
+    }
+
+    private Future<Void> drive() {
+        int rate = config.getInteger(CONFIG_RATE, 500);
+        long warmupNanos = TimeUnit.SECONDS.toNanos(config.getInteger(CONFIG_WARMUP_SECONDS, 10));
+        long durationNanos = TimeUnit.SECONDS.toNanos(config.getInteger(CONFIG_DURATION_SECONDS, 60));
+        double intervalNanos = 1e9 / rate;
+        long start = System.nanoTime();
+        long recordFrom = start + warmupNanos;
+        long end = recordFrom + durationNanos;
+        log.info("Driving {} req/s for {}s after {}s of warmup", rate,
+            TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(warmupNanos));
+
+        Future<Void> done = Future.future();
+        long[] sent = {0};
+        vertx.setPeriodic(1, timerId -> {
+            long now = System.nanoTime();
+            if (allocatedAtRecordStart < 0 && now >= recordFrom) {
+                allocatedAtRecordStart = allocatedBytes();
+            }
+            long due = (long) ((Math.min(now, end) - start) / intervalNanos);
+            for (; sent[0] < due; sent[0]++) {
+                long intended = start + (long) (sent[0] * intervalNanos);
+                send(pickOp(), intended, intended >= recordFrom);
+            }
+            if (now >= end) {
+                vertx.cancelTimer(timerId);
+                allocatedWhileRecording = allocatedBytes() - allocatedAtRecordStart;
+                recordedNanos = now - recordFrom;
+                awaitOutstanding(done, now + TimeUnit.SECONDS.toNanos(30));
+            }
+        });
+        return done;
+    }
+
+    private void awaitOutstanding(Future<Void> done, long deadline) {
+        if (outstanding == 0 || System.nanoTime() > deadline) {
+            if (outstanding > 0) {
+                log.warn("{} requests still outstanding, not waiting any longer", outstanding);
+            }
+            done.complete();
+        } else {
+            vertx.setTimer(100, t -> awaitOutstanding(done, deadline));
+        }
+    }
+
+    private Op pickOp() {
+        int r = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Op op : Op.values()) {
+            r -= weights[op.ordinal()];
+            if (r < 0) {
+                return op;
+            }
+        }
+        return Op.PAGE;
+    }
+
+    private void send(Op op, long intended, boolean record) {
+        int i = ThreadLocalRandom.current().nextInt(pageIds.length);
+        Future<HttpResponse<Buffer>> response = Future.future();
+        boolean scratchDeleted = false;
+        switch (op) {
+            case PAGE:
+                client.get("/wiki/" + SamplePages.name(i)).send(response.completer());
+                break;
+            case INDEX:
+                client.get("/").send(response.completer());
+                break;
+            case SAVE:
+                client.post("/save").sendForm(MultiMap.caseInsensitiveMultiMap()
+                    .add("id", String.valueOf(pageIds[i]))
+                    .add("title", SamplePages.name(i))
+                    .add("markdown", content)
+                    .add("newPage", "false"), response.completer());
+                break;
+            case DELETE:
+                Integer id = scratchIds.poll();
+                if (id == null) {
+                    // deletes outpace the re-creation of scratch pages, count it as a failed request
+                    response.fail("No scratch page left to delete");
+                    break;
+                }
+                scratchDeleted = true;
+                client.post("/delete").sendForm(MultiMap.caseInsensitiveMultiMap()
+                    .add("id", String.valueOf(id)), response.completer());
+                break;
+        }
+
+        outstanding++;
+        if (record) {
+            recordedRequests++;
+        }
+        boolean recreate = scratchDeleted;
+        response.setHandler(res -> {
+            outstanding--;
+            if (recreate) {
+                recreateScratchPage();
+            }
+            if (!record) {
+                return;
+            }
+            if (res.failed() || res.result().statusCode() >= 400) {
+                errors.merge(op, 1L, Long::sum);
+            } else {
+                histograms.get(op).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended));
+            }
+        });
+    }
+
+    private void recreateScratchPage() {
+        String name = scratchName();
+        vertx.eventBus().send(wikiDbQueue, new SavePage(-1, name, content, true), reply -> {
+            if (reply.failed()) {
+                log.error("Cant create scratch page " + name, reply.cause());
+                return;
+            }
+            pageId(name).setHandler(id -> {
+                if (id.succeeded()) {
+                    scratchIds.add(id.result());
+                }
+            });
+        });
+    }
+
+    private String scratchName() {
+        return String.format("Scratch%07d", scratchCounter++);
+    }
+
+    private void report() throws IOException {
+        Histogram total = new Histogram(3);
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+            "op", "count", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        long totalErrors = 0;
+        for (Op op : Op.values()) {
+            Histogram histogram = histograms.get(op);
+            total.add(histogram);
+            totalErrors += errors.get(op);
+            appendRow(report, op.name().toLowerCase(), histogram, errors.get(op));
+        }
+        appendRow(report, "total", total, totalErrors);
+        if (recordedRequests > 0 && recordedNanos > 0) {
+            report.append(String.format("%nallocated %.1f MB/s, %.1f KB per request (whole JVM, client included)%n",
+                allocatedWhileRecording / 1e6 / (recordedNanos / 1e9),
+                allocatedWhileRecording / 1024.0 / recordedRequests));
+        }
+        System.out.print(report);
+
+        String reportFile = config.getString(CONFIG_REPORT_FILE);
+        if (reportFile != null) {
+            try (PrintStream out = new PrintStream(reportFile, "UTF-8")) {
+                out.print(report);
+                out.println();
+                total.outputPercentileDistribution(out, 1000.0);
+            }
+            log.info("Full percentile distribution written to {}", reportFile);
+        }
+    }
+
+    private static void appendRow(StringBuilder report, String name, Histogram h, long errors) {
+        report.append(String.format("%-8s %10d %8d %10.2f %10.2f %10.2f %10.2f %10.2f%n", name,
+            h.getTotalCount(), errors,
+            h.getValueAtPercentile(50) / 1000.0,
+            h.getValueAtPercentile(90) / 1000.0,
+            h.getValueAtPercentile(99) / 1000.0,
+            h.getValueAtPercentile(99.9) / 1000.0,
+            h.getMaxValue() / 1000.0));
+    }
+
+    /**
+     * Bytes allocated so far by the live threads of the JVM, server and client alike.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long total = 0;
+        for (long allocated : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+            total += Math.max(0, allocated);
+        }
+        return total;
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        future.setHandler(res -> latch.countDown());
+        latch.await();
+        if (future.failed()) {
+            throw new IllegalStateException(future.cause());
+        }
+        return future.result();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        if (!Files.exists(dir)) {
+            return;
+        }
+        Files.walk(dir)
+            .sorted((a, b) -> b.compareTo(a))
+            .forEach(path -> path.toFile().delete());
+    }
+}
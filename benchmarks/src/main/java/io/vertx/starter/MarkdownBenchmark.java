@@ -0,0 +1,33 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * txtmark rendering of pages of realistic sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarkdownBenchmark {
+
+    @Param({"1024", "32768", "524288"})
+    int pageSize;
+
+    String markdown;
+
+    @Setup
+    public void setup() {
+        markdown = SamplePages.markdown(pageSize);
+    }
+
+    @Benchmark
+    public String process() {
+        return Processor.process(markdown);
+    }
+}
@@ -0,0 +1,107 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wire cost of the 'wikidb.queue' messages: the binary {@link WikiMessageCodec} form against the
+ * JsonObject form the messages used to have.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageCodecBenchmark {
+
+    @Param({"1024", "32768"})
+    int pageSize;
+
+    WikiMessageCodec<PageResult> pageCodec = new WikiMessageCodec<>(PageResult.class, PageResult::readFrom);
+    WikiMessageCodec<PageList> listCodec = new WikiMessageCodec<>(PageList.class, PageList::readFrom);
+
+    PageResult page;
+    PageList list;
+    JsonObject pageJson;
+    JsonObject listJson;
+    Buffer pageWire;
+    Buffer listWire;
+    String pageJsonText;
+    String listJsonText;
+
+    @Setup
+    public void setup() {
+        String markdown = SamplePages.markdown(pageSize);
+        page = new PageResult(true, 42, markdown, null, 7, System.currentTimeMillis());
+        list = new PageList(SamplePages.names(100), SamplePages.name(99));
+
+        pageJson = new JsonObject()
+            .put("found", true)
+            .put("id", page.getId())
+            .put("rawContent", page.getRawContent())
+            .put("version", page.getVersion())
+            .put("modified", page.getModified());
+        listJson = new JsonObject()
+            .put("pages", new JsonArray(list.getNames()))
+            .put("next", list.getNext());
+
+        pageWire = encodePageWire();
+        listWire = encodeListWire();
+        pageJsonText = pageJson.encode();
+        listJsonText = listJson.encode();
+    }
+
+    @Benchmark
+    public Buffer encodePageWire() {
+        Buffer buffer = Buffer.buffer();
+        pageCodec.encodeToWire(buffer, page);
+        return buffer;
+    }
+
+    @Benchmark
+    public PageResult decodePageWire() {
+        return pageCodec.decodeFromWire(0, pageWire);
+    }
+
+    @Benchmark
+    public String encodePageJson() {
+        return pageJson.encode();
+    }
+
+    @Benchmark
+    public JsonObject decodePageJson() {
+        return new JsonObject(pageJsonText);
+    }
+
+    @Benchmark
+    public Buffer encodeListWire() {
+        Buffer buffer = Buffer.buffer();
+        listCodec.encodeToWire(buffer, list);
+        return buffer;
+    }
+
+    @Benchmark
+    public PageList decodeListWire() {
+        return listCodec.decodeFromWire(0, listWire);
+    }
+
+    @Benchmark
+    public String encodeListJson() {
+        return listJson.encode();
+    }
+
+    @Benchmark
+    public JsonObject decodeListJson() {
+        return new JsonObject(listJsonText);
+    }
+
+    @Benchmark
+    public PageResult localTransform() {
+        return pageCodec.transform(page);
+    }
+}
@@ -0,0 +1,45 @@
+package io.vertx.starter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Deterministic wiki content for benchmarks and load tests.
+ */
+public final class SamplePages {
+
+    private static final String SECTION =
+        "## Section %d\n\n"
+            + "Some *emphasised* text with a [link](/wiki/Other%d) and `inline code`, "
+            + "followed by a longer sentence describing what this part of the page is about.\n\n"
+            + "* first item\n* second item with **bold** words\n* third item\n\n"
+            + "    code block line one\n    code block line two\n\n"
+            + "> quoted paragraph that spans\n> a couple of lines\n\n";
+
+    private SamplePages() {
+    }
+
+    /**
+     * Markdown of roughly {@code size} chars.
+     */
+    public static String markdown(int size) {
+        StringBuilder sb = new StringBuilder(size + SECTION.length() * 2);
+        sb.append("# Sample page\n\n");
+        for (int i = 0; sb.length() < size; i++) {
+            sb.append(String.format(SECTION, i, i));
+        }
+        return sb.toString();
+    }
+
+    public static String name(int i) {
+        return String.format("Page%07d", i);
+    }
+
+    public static List<String> names(int count) {
+        List<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            names.add(name(i));
+        }
+        return names;
+    }
+}
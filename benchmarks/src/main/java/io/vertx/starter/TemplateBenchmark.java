@@ -0,0 +1,76 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+import freemarker.cache.ClassTemplateLoader;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FreeMarker rendering of page.ftl and index.ftl with the same data model the wiki passes
+ * through the routing context.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TemplateBenchmark {
+
+    @Param({"1024", "32768", "524288"})
+    int pageSize;
+
+    @Param({"100", "1000"})
+    int indexSize;
+
+    Template pageTemplate;
+    Template indexTemplate;
+    Map<String, Object> pageModel;
+    Map<String, Object> indexModel;
+
+    @Setup
+    public void setup() throws Exception {
+        Configuration config = new Configuration(Configuration.VERSION_2_3_23);
+        config.setTemplateLoader(new ClassTemplateLoader(TemplateBenchmark.class, "/templates"));
+        pageTemplate = config.getTemplate("page.ftl");
+        indexTemplate = config.getTemplate("index.ftl");
+
+        String markdown = SamplePages.markdown(pageSize);
+        Map<String, Object> page = new HashMap<>();
+        page.put("title", "Sample");
+        page.put("id", 1);
+        page.put("newPage", false);
+        page.put("rawContent", markdown);
+        page.put("content", Processor.process(markdown));
+        page.put("timestamp", ConditionalGet.httpDate(0));
+        pageModel = Collections.singletonMap("context", page);
+
+        Map<String, Object> index = new HashMap<>();
+        index.put("title", "Wiki home");
+        index.put("pages", SamplePages.names(indexSize));
+        index.put("next", SamplePages.name(indexSize - 1));
+        index.put("firstPage", true);
+        indexModel = Collections.singletonMap("context", index);
+    }
+
+    @Benchmark
+    public String renderPage() throws Exception {
+        StringWriter out = new StringWriter();
+        pageTemplate.process(pageModel, out);
+        return out.toString();
+    }
+
+    @Benchmark
+    public String renderIndex() throws Exception {
+        StringWriter out = new StringWriter();
+        indexTemplate.process(indexModel, out);
+        return out.toString();
+    }
+}
@@ -5,8 +5,15 @@ export VERTICLE="io.vertx.starter.MainVerticle"
 export CMD="mvn compile"
 export VERTX_CMD="run"
 
+# class data sharing archive of 'mvn -Pappcds package', when there is one
+export CDS_ARCHIVE="target/vertx-wiki.jsa"
+JAVA_OPTS=""
+if [ -f "$CDS_ARCHIVE" ]; then
+  JAVA_OPTS="-XX:SharedArchiveFile=$CDS_ARCHIVE"
+fi
+
 #mvn compile dependency:copy-dependencies
-java \
+java $JAVA_OPTS \
   -Dvertx.logger-delegate-factory-class-name=io.vertx.core.logging.SLF4JLogDelegateFactory \
   -Dlogback.=io.vertx.core.logging.SLF4JLogDelegateFactory \
   -jar  ./target/vertx-wiki-1.0-SNAPSHOT-fat.jar \
@@ -0,0 +1,236 @@
+package io.vertx.starter;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control of the 'wikidb.queue' requests of one http verticle, reads and writes in separate lanes,
+ * so an overloaded database sheds load with a quick 503 instead of letting every request time out.
+ * <p>
+ * A lane sends up to its limit of concurrent requests and queues a bounded number more. A request finding
+ * the queue full, or waiting in it longer than the lane's send timeout, fails with {@link OverloadedException}.
+ * The limit adapts AIMD style to the measured round trip: it grows by one per limit's worth of replies
+ * faster than the lane's target latency while the lane is busy, and is cut by 'admission.backoff'
+ * on a slower reply or a timeout, at most once per window: replies to requests sent before the last cut
+ * reflect the old limit and do not cut it again.
+ * <p>
+ * Not thread safe: every {@link HttpServerVerticle} instance owns one and uses it from its event loop.
+ */
+public class AdmissionControl {
+
+    public static final String CONFIG_ADMISSION_ENABLED = "admission.enabled";
+    public static final String CONFIG_ADMISSION_BACKOFF = "admission.backoff";
+    public static final String CONFIG_ADMISSION_RETRY_AFTER_S = "admission.retry-after-s";
+
+    public enum Lane {
+        READ("read", 16, 200, 2000, 100, 200),
+        WRITE("write", 8, 50, 5000, 500, 100);
+
+        private final String key;
+        private final int initialLimit;
+        private final int maxLimit;
+        private final long timeoutMs;
+        private final long targetLatencyMs;
+        private final int queueSize;
+
+        Lane(String key, int initialLimit, int maxLimit, long timeoutMs, long targetLatencyMs, int queueSize) {
+            this.key = key;
+            this.initialLimit = initialLimit;
+            this.maxLimit = maxLimit;
+            this.timeoutMs = timeoutMs;
+            this.targetLatencyMs = targetLatencyMs;
+            this.queueSize = queueSize;
+        }
+
+        public static Lane of(WikiMessage request) {
+            return request instanceof SavePage || request instanceof DeletePage || request instanceof ImportPages
+                ? WRITE
+                : READ;
+        }
+    }
+
+    private final Vertx vertx;
+    private final String address;
+    private final boolean enabled;
+    private final double backoff;
+    private final int retryAfterSeconds;
+    private final Map<Lane, LaneState> lanes = new EnumMap<>(Lane.class);
+
+    public AdmissionControl(Vertx vertx, String address, JsonObject config) {
+        this.vertx = vertx;
+        this.address = address;
+        this.enabled = config.getBoolean(CONFIG_ADMISSION_ENABLED, true);
+        this.backoff = config.getDouble(CONFIG_ADMISSION_BACKOFF, 0.9);
+        this.retryAfterSeconds = config.getInteger(CONFIG_ADMISSION_RETRY_AFTER_S, 1);
+        for (Lane lane : Lane.values()) {
+            lanes.put(lane, new LaneState(lane, config));
+        }
+    }
+
+    /**
+     * Send a request to the database verticles, through its lane, timed in {@link WikiMetrics}.
+     */
+    public <T> void send(WikiMessage request, Handler<AsyncResult<Message<T>>> handler) {
+        LaneState lane = lanes.get(Lane.of(request));
+        Runnable dispatch = () -> dispatch(lane, request, handler);
+        if (!enabled || lane.inFlight < (int) lane.limit) {
+            dispatch.run();
+        } else if (lane.queue.size() < lane.queueSize) {
+            lane.queue.add(new Pending(dispatch, () -> reject(lane, handler)));
+            armExpiry(lane);
+        } else {
+            reject(lane, handler);
+        }
+    }
+
+    public int retryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public JsonObject stats() {
+        JsonObject stats = new JsonObject();
+        lanes.forEach((lane, state) -> stats.put(lane.key, new JsonObject()
+            .put("limit", (int) state.limit)
+            .put("inFlight", state.inFlight)
+            .put("queued", state.queue.size())
+            .put("sent", state.sent)
+            .put("rejected", state.rejected)
+            .put("timeouts", state.timeouts)));
+        return stats;
+    }
+
+    private <T> void dispatch(LaneState lane, WikiMessage request, Handler<AsyncResult<Message<T>>> handler) {
+        lane.inFlight++;
+        long sequence = ++lane.sent;
+        long sent = System.nanoTime();
+        DeliveryOptions options = new DeliveryOptions().setSendTimeout(lane.timeoutMs);
+        vertx.eventBus().send(address, request, options, WikiMetrics.<T>timeReply(request, reply -> {
+            lane.inFlight--;
+            boolean timedOut = isTimeout(reply.cause());
+            if (timedOut) {
+                lane.timeouts++;
+            }
+            lane.adapt(sequence, System.nanoTime() - sent, timedOut, backoff);
+            drain(lane);
+            handler.handle(reply);
+        }));
+    }
+
+    private void drain(LaneState lane) {
+        expire(lane);
+        while (!lane.queue.isEmpty() && (!enabled || lane.inFlight < (int) lane.limit)) {
+            lane.queue.poll().dispatch.run();
+        }
+    }
+
+    /**
+     * Reject the queued requests waiting longer than the send timeout. The queue is in arrival order, so they
+     * are at its head.
+     */
+    private void expire(LaneState lane) {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(lane.timeoutMs);
+        while (!lane.queue.isEmpty() && now - lane.queue.peek().enqueued > timeoutNanos) {
+            lane.queue.poll().reject.run();
+        }
+    }
+
+    /**
+     * Queued requests must expire even when no reply comes to drain the lane, one timer per lane fires when
+     * the oldest of them is due.
+     */
+    private void armExpiry(LaneState lane) {
+        if (lane.expiryTimer != -1 || lane.queue.isEmpty()) {
+            return;
+        }
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lane.queue.peek().enqueued);
+        lane.expiryTimer = vertx.setTimer(Math.max(1, lane.timeoutMs - waitedMs + 1), t -> {
+            lane.expiryTimer = -1;
+            expire(lane);
+            armExpiry(lane);
+        });
+    }
+
+    private <T> void reject(LaneState lane, Handler<AsyncResult<Message<T>>> handler) {
+        lane.rejected++;
+        WikiMetrics.recordAdmissionRejected(lane.lane.key);
+        handler.handle(Future.failedFuture(new OverloadedException(
+            "Too many " + lane.lane.key + " requests to the database", retryAfterSeconds)));
+    }
+
+    public static boolean isTimeout(Throwable failure) {
+        return failure instanceof ReplyException && ((ReplyException) failure).failureType() == ReplyFailure.TIMEOUT;
+    }
+
+    private static class LaneState {
+        private final Lane lane;
+        private final int maxLimit;
+        private final long timeoutMs;
+        private final long targetLatencyNanos;
+        private final int queueSize;
+        private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+
+        private double limit;
+        private int inFlight;
+        private long sent;
+        private long rejected;
+        private long timeouts;
+
+        /**
+         * Value of {@link #sent} when the limit was last cut.
+         */
+        private long cutAt;
+        private long expiryTimer = -1;
+
+        private LaneState(Lane lane, JsonObject config) {
+            String prefix = "admission." + lane.key + ".";
+            this.lane = lane;
+            this.limit = config.getInteger(prefix + "initial-limit", lane.initialLimit);
+            this.maxLimit = config.getInteger(prefix + "max-limit", lane.maxLimit);
+            this.timeoutMs = config.getLong(prefix + "timeout-ms", lane.timeoutMs);
+            this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(
+                config.getLong(prefix + "target-latency-ms", lane.targetLatencyMs));
+            this.queueSize = config.getInteger(prefix + "queue-size", lane.queueSize);
+        }
+
+        /**
+         * Only a busy lane grows, a lightly used one says nothing about how much more the database takes.
+         * A slow reply to a request sent before the last cut does not cut again.
+         *
+         * @param sequence value of {@link #sent} when the replied request was sent
+         */
+        private void adapt(long sequence, long latencyNanos, boolean timedOut, double backoff) {
+            if (timedOut || latencyNanos > targetLatencyNanos) {
+                if (sequence > cutAt) {
+                    limit = Math.max(1, limit * backoff);
+                    cutAt = sent;
+                }
+            } else if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    private static class Pending {
+        private final long enqueued = System.nanoTime();
+        private final Runnable dispatch;
+        private final Runnable reject;
+
+        private Pending(Runnable dispatch, Runnable reject) {
+            this.dispatch = dispatch;
+            this.reject = reject;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Block level markdown rendering with a cache of rendered blocks, so saving a big page edited in a few places
+ * renders only the blocks that changed.
+ * <p>
+ * Markdown is split at blank lines into top-level blocks, each rendered alone by txtmark, and the html of the
+ * blocks is concatenated. A split is made only where markdown does not join the blocks: never inside a fence,
+ * before a line indented by four spaces or a tab (code or list item continuation), before any indented line
+ * after a list or a quote, or between two list or two quote blocks. Up to three leading spaces are not
+ * indentation, as in markdown. Documents with link reference definitions or html blocks (comments included),
+ * which reach across blocks, are rendered whole.
+ * <p>
+ * Rendered blocks are cached by content, least recently used first out beyond 'render.block-cache.max-bytes'.
+ * A cache size of 0 renders every document whole. Thread safe, saves are rendered on worker threads.
+ */
+public class BlockMarkdown {
+
+    public static final String CONFIG_BLOCK_CACHE_MAX_BYTES = "render.block-cache.max-bytes";
+
+    private static final Pattern LINK_DEFINITION = Pattern.compile("^ {0,3}\\[[^\\]]+\\]:", Pattern.MULTILINE);
+    private static final Pattern HTML_BLOCK = Pattern.compile("^ {0,3}<([a-zA-Z]|!--)", Pattern.MULTILINE);
+
+    /**
+     * Code, or the continuation of a list item: four spaces or a tab. One to three spaces are not indentation.
+     */
+    private static final Pattern INDENTED = Pattern.compile("( {0,3}\\t| {4})");
+    private static final Pattern LIST_ITEM = Pattern.compile("^ {0,3}([*+-]|\\d+\\.)[ \\t]");
+    private static final Pattern QUOTE = Pattern.compile("^ {0,3}>");
+    private static final Pattern FENCE = Pattern.compile("^ {0,3}(```|~~~)");
+
+    private final long maxBytes;
+
+    /**
+     * Access ordered, the eldest entry is the least recently used block.
+     */
+    private final LinkedHashMap<String, String> blocks = new LinkedHashMap<>(256, 0.75f, true);
+
+    private long bytes;
+
+    public BlockMarkdown(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public String render(String markdown) {
+        if (maxBytes <= 0 || LINK_DEFINITION.matcher(markdown).find() || HTML_BLOCK.matcher(markdown).find()) {
+            return Processor.process(markdown);
+        }
+        List<String> parts = split(markdown);
+        if (parts.size() == 1) {
+            return Processor.process(markdown);
+        }
+        int rendered = 0;
+        StringBuilder html = new StringBuilder(markdown.length() + markdown.length() / 4);
+        for (String block : parts) {
+            String blockHtml = cached(block);
+            if (blockHtml == null) {
+                blockHtml = Processor.process(block);
+                cache(block, blockHtml);
+                rendered++;
+            }
+            html.append(blockHtml);
+        }
+        WikiMetrics.recordMarkdownBlocks(rendered, parts.size() - rendered);
+        return html.toString();
+    }
+
+    private static List<String> split(String markdown) {
+        List<String> parts = new ArrayList<>();
+        int blockStart = 0;
+        boolean inFence = false;
+        boolean previousBlank = false;
+        boolean blockHasList = false;
+        boolean blockHasQuote = false;
+        int lineStart = 0;
+        while (lineStart < markdown.length()) {
+            int newline = markdown.indexOf('\n', lineStart);
+            int lineEnd = newline < 0 ? markdown.length() : newline + 1;
+            String line = markdown.substring(lineStart, lineEnd);
+            boolean blank = line.trim().isEmpty();
+            boolean indented = INDENTED.matcher(line).lookingAt();
+            // txtmark goes on with a list or a quote at any indented line, one to three spaces included
+            boolean continuation = (blockHasList || blockHasQuote) && (line.startsWith(" ") || line.startsWith("\t"));
+            boolean listItem = !indented && LIST_ITEM.matcher(line).find();
+            boolean quote = !indented && QUOTE.matcher(line).find();
+
+            if (previousBlank && !blank && !indented && !continuation && !inFence && lineStart > blockStart
+                && !(listItem && blockHasList) && !(quote && blockHasQuote)) {
+                parts.add(markdown.substring(blockStart, lineStart));
+                blockStart = lineStart;
+                blockHasList = false;
+                blockHasQuote = false;
+            }
+            if (!indented && FENCE.matcher(line).find()) {
+                inFence = !inFence;
+            }
+            blockHasList |= listItem;
+            blockHasQuote |= quote;
+            previousBlank = blank;
+            lineStart = lineEnd;
+        }
+        if (blockStart < markdown.length() || parts.isEmpty()) {
+            parts.add(markdown.substring(blockStart));
+        }
+        return parts;
+    }
+
+    private synchronized String cached(String block) {
+        return blocks.get(block);
+    }
+
+    private synchronized void cache(String block, String html) {
+        long size = weight(block, html);
+        if (size > maxBytes) {
+            return;
+        }
+        String previous = blocks.put(block, html);
+        if (previous != null) {
+            bytes -= weight(block, previous);
+        }
+        bytes += size;
+        Iterator<Map.Entry<String, String>> eldest = blocks.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, String> entry = eldest.next();
+            bytes -= weight(entry.getKey(), entry.getValue());
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Two bytes per char of the block and of its html.
+     */
+    private static long weight(String block, String html) {
+        return 2L * (block.length() + html.length());
+    }
+}
@@ -0,0 +1,250 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
+
+/**
+ * Bulk import and export of pages as NDJSON, one {@code {"name": ..., "content": ...}} object per line.
+ * <p>
+ * Import parses the request body line by line as it arrives and sends pages to the database in batches of at
+ * most 'batchSize' pages, pausing the request while a batch is being written; lines parsed meanwhile are
+ * carried over to the next batch. Export walks the pages with the keyset cursor and writes them out chunk by
+ * chunk, each about 'exportChunkBytes' long: a chunk holds as many pages as fit when they are as large as the
+ * largest page of the previous chunk, one page for the first. Import keeps memory bounded by the batch size and
+ * lines by the request body limit, export by the chunk size.
+ * <p>
+ * An import is not atomic, every batch is committed on its own. A rejected import is answered once the batch
+ * in flight is done, with the number of pages imported before it.
+ */
+public class BulkApi {
+    Logger log = LoggerFactory.getLogger(BulkApi.class);
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final AdmissionControl admission;
+    private final int batchSize;
+    private final int maxContentLength;
+    private final long maxLineBytes;
+    private final long exportChunkBytes;
+
+    public BulkApi(AdmissionControl admission, int batchSize, int maxContentLength, long maxLineBytes,
+                   long exportChunkBytes) {
+        this.admission = admission;
+        this.batchSize = batchSize;
+        this.maxContentLength = maxContentLength;
+        this.maxLineBytes = maxLineBytes;
+        this.exportChunkBytes = exportChunkBytes;
+    }
+
+    public void importHandler(RoutingContext ctxt) {
+        log.debug("Handle bulk import http method");
+        ImportState state = new ImportState(ctxt);
+        RecordParser parser = RecordParser.newDelimited("\n", line -> onLine(state, line));
+        HttpServerRequest req = ctxt.request();
+        req.exceptionHandler(err -> {
+            state.failed = true;
+            ctxt.fail(err);
+        });
+        req.handler(chunk -> {
+            if (state.failed) {
+                return;
+            }
+            if (lineTooLong(state, chunk)) {
+                rejectImport(state, REQUEST_ENTITY_TOO_LARGE.code(),
+                    "Line " + (state.lines + 1) + " is longer than " + maxLineBytes + " bytes");
+                return;
+            }
+            parser.handle(chunk);
+        });
+        req.endHandler(v -> {
+            // the parser keeps the last line until it sees a delimiter
+            parser.handle(Buffer.buffer("\n"));
+            state.ended = true;
+            sendBatch(state);
+        });
+    }
+
+    /**
+     * The parser buffers a line until its delimiter comes, the bytes of the current line are counted before.
+     */
+    private boolean lineTooLong(ImportState state, Buffer chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            if (chunk.getByte(i) == '\n') {
+                state.lineBytes = 0;
+            } else if (++state.lineBytes > maxLineBytes) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void onLine(ImportState state, Buffer line) {
+        if (state.failed || line.length() == 0) {
+            return;
+        }
+        JsonObject page;
+        try {
+            page = new JsonObject(line.toString());
+        } catch (DecodeException e) {
+            rejectImport(state, BAD_REQUEST.code(), "Line " + (state.lines + 1) + " is not a json object");
+            return;
+        }
+        state.lines++;
+        String name = page.getString("name");
+        String content = page.getString("content", "");
+        if (name == null || name.isEmpty()) {
+            rejectImport(state, BAD_REQUEST.code(), "Line " + state.lines + " has no page name");
+            return;
+        }
+        if (content.length() > maxContentLength) {
+            rejectImport(state, REQUEST_ENTITY_TOO_LARGE.code(), "Page '" + name + "' is too large");
+            return;
+        }
+        state.names.add(name);
+        state.contents.add(content);
+        if (state.names.size() >= batchSize) {
+            state.ctxt.request().pause();
+            sendBatch(state);
+        }
+    }
+
+    private void sendBatch(ImportState state) {
+        if (state.inFlight || state.failed) {
+            return;
+        }
+        if (state.names.isEmpty()) {
+            if (state.ended) {
+                state.ctxt.response()
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                    .end(new JsonObject().put("imported", state.imported).encode());
+            } else {
+                state.ctxt.request().resume();
+            }
+            return;
+        }
+        // the parser goes on with the chunk at hand after a pause, lines beyond the batch wait for the next one
+        int size = Math.min(state.names.size(), batchSize);
+        ImportPages batch = new ImportPages(new ArrayList<>(state.names.subList(0, size)),
+            new ArrayList<>(state.contents.subList(0, size)));
+        state.names.subList(0, size).clear();
+        state.contents.subList(0, size).clear();
+        state.inFlight = true;
+
+        admission.send(batch, reply -> {
+            state.inFlight = false;
+            if (reply.succeeded()) {
+                state.imported += batch.size();
+            }
+            if (state.rejection != null) {
+                endRejected(state);
+                return;
+            }
+            if (reply.failed()) {
+                state.failed = true;
+                state.ctxt.fail(reply.cause());
+                return;
+            }
+            if (state.ended || state.names.size() >= batchSize) {
+                sendBatch(state);
+            } else {
+                state.ctxt.request().resume();
+            }
+        });
+    }
+
+    private void rejectImport(ImportState state, int status, String reason) {
+        log.warn("Bulk import rejected: {}", reason);
+        state.failed = true;
+        state.rejectionStatus = status;
+        state.rejection = reason;
+        if (!state.inFlight) {
+            endRejected(state);
+        }
+    }
+
+    private void endRejected(ImportState state) {
+        state.ctxt.response()
+            .setStatusCode(state.rejectionStatus)
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(new JsonObject().put("error", state.rejection).put("imported", state.imported).encode());
+    }
+
+    public void exportHandler(RoutingContext ctxt) {
+        log.debug("Handle bulk export http method");
+        HttpServerResponse resp = ctxt.response()
+            .setChunked(true)
+            .putHeader(HttpHeaders.CONTENT_TYPE, NDJSON);
+        exportChunk(resp, null, 1);
+    }
+
+    private void exportChunk(HttpServerResponse resp, String after, int limit) {
+        ListPages request = new ListPages(after, limit, true);
+        admission.<PageList>send(request, msgRes -> {
+            if (resp.closed()) {
+                return;
+            }
+            if (msgRes.failed()) {
+                log.error("Cant export pages", msgRes.cause());
+                resp.close();
+                return;
+            }
+            PageList body = msgRes.result().body();
+            Buffer chunk = Buffer.buffer();
+            int largestLine = 1;
+            for (int i = 0; i < body.getNames().size(); i++) {
+                int start = chunk.length();
+                chunk.appendString(new JsonObject()
+                    .put("name", body.getNames().get(i))
+                    .put("content", body.getContents().get(i))
+                    .encode())
+                    .appendString("\n");
+                largestLine = Math.max(largestLine, chunk.length() - start);
+            }
+            if (chunk.length() > 0) {
+                resp.write(chunk);
+            }
+
+            String next = body.getNext();
+            int nextLimit = (int) Math.max(1, Math.min(batchSize, exportChunkBytes / largestLine));
+            if (next == null) {
+                resp.end();
+            } else if (resp.writeQueueFull()) {
+                resp.drainHandler(v -> exportChunk(resp, next, nextLimit));
+            } else {
+                exportChunk(resp, next, nextLimit);
+            }
+        });
+    }
+
+    private static class ImportState {
+        private final RoutingContext ctxt;
+        private List<String> names = new ArrayList<>();
+        private List<String> contents = new ArrayList<>();
+        private int lines;
+        private int imported;
+        private long lineBytes;
+        private int rejectionStatus;
+        private String rejection;
+        private boolean inFlight;
+        private boolean ended;
+        private boolean failed;
+
+        private ImportState(RoutingContext ctxt) {
+            this.ctxt = ctxt;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package io.vertx.starter;
+
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_MODIFIED;
+import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
+
+/**
+ * Helpers for {@code ETag}/{@code Last-Modified} validators and {@code 304 Not Modified} responses.
+ */
+public final class ConditionalGet {
+
+    private static final CharSequence NO_CACHE = HttpHeaders.createOptimized("no-cache");
+
+    private ConditionalGet() {
+    }
+
+    public static String pageEtag(int pageId, int version) {
+        return "\"" + pageId + "-" + version + "\"";
+    }
+
+    /**
+     * Strong entity tag of a rendered list of names and its next page cursor: a SHA-1 of them, so two lists
+     * differing in any name get different tags, where a hash code collides often enough to serve a stale list.
+     */
+    public static String listEtag(List<String> names, String next) {
+        MessageDigest sha1;
+        try {
+            sha1 = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        sha1.update(ByteBuffer.allocate(4).putInt(names.size()).array());
+        for (String name : names) {
+            update(sha1, name);
+        }
+        if (next != null) {
+            update(sha1, next);
+        }
+        return "\"l" + Base64.getUrlEncoder().withoutPadding().encodeToString(sha1.digest()) + "\"";
+    }
+
+    /**
+     * Length first, as the count of names is, so that no list hashes like another one with the same chars.
+     */
+    private static void update(MessageDigest digest, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+
+    /**
+     * {@code If-None-Match} wins over {@code If-Modified-Since} when both are sent (RFC 7232, 6).
+     */
+    public static boolean isNotModified(HttpServerRequest req, String etag, long lastModified) {
+        return isNotModified(req.getHeader(HttpHeaders.IF_NONE_MATCH), req.getHeader(HttpHeaders.IF_MODIFIED_SINCE),
+            etag, lastModified);
+    }
+
+    static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified) {
+        if (ifNoneMatch != null) {
+            return etag != null && etagMatches(ifNoneMatch, etag);
+        }
+        if (ifModifiedSince != null && lastModified > 0) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, RFC_1123_DATE_TIME).toInstant().getEpochSecond();
+                return lastModified / 1000 <= since;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public static void putValidators(HttpServerResponse resp, String etag, long lastModified) {
+        putValidators(resp, etag, lastModified > 0 ? httpDate(lastModified) : null);
+    }
+
+    /**
+     * @param lastModifiedDate {@code Last-Modified} value already formatted, null when unknown
+     */
+    public static void putValidators(HttpServerResponse resp, String etag, String lastModifiedDate) {
+        resp.putHeader(HttpHeaders.CACHE_CONTROL, NO_CACHE);
+        if (etag != null) {
+            resp.putHeader(HttpHeaders.ETAG, etag);
+        }
+        if (lastModifiedDate != null) {
+            resp.putHeader(HttpHeaders.LAST_MODIFIED, lastModifiedDate);
+        }
+    }
+
+    public static void endNotModified(HttpServerResponse resp, String etag, long lastModified) {
+        putValidators(resp, etag, lastModified);
+        resp.setStatusCode(NOT_MODIFIED.code()).end();
+    }
+
+    public static void endNotModified(HttpServerResponse resp, String etag, String lastModifiedDate) {
+        putValidators(resp, etag, lastModifiedDate);
+        resp.setStatusCode(NOT_MODIFIED.code()).end();
+    }
+
+    public static String httpDate(long epochMillis) {
+        return RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC));
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
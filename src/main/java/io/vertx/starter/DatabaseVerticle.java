@@ -1,249 +1,675 @@
 package io.vertx.starter;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
+import io.vertx.core.Handler;
 import io.vertx.core.eventbus.Message;
-import io.vertx.core.http.HttpHeaders;
-import io.vertx.core.http.HttpServerRequest;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
-import io.vertx.ext.jdbc.JDBCClient;
-import io.vertx.ext.sql.ResultSet;
-import io.vertx.ext.sql.SQLConnection;
 
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.*;
 
 import static io.vertx.starter.HttpServerVerticle.ACTION;
+import static io.vertx.starter.HttpServerVerticle.CONFIG_WIKIDB_PAGE_EVENTS;
 import static io.vertx.starter.HttpServerVerticle.CONFIG_WIKIDB_QUEUE;
-import static java.util.Arrays.asList;
-import static java.util.Collections.singletonList;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 @SuppressWarnings("Duplicates")
 public class DatabaseVerticle extends AbstractVerticle {
     Logger log = LoggerFactory.getLogger(DatabaseVerticle.class);
 
-    private final String CONFIG_WIKIDB_SQL_QUERIES_RES_FILE = "wikidb.sql-queries";
-    private final String CONFIG_WIKIDB_SQL_QUERIES_RES_FILE_DEFAULT = "/db-queries.properties";
+    public static final String CONFIG_WIKIDB_STORE = "wikidb.store";
 
-    private JDBCClient dbClient;
+    private final String CONFIG_WIKIDB_WRITE_BATCH_MAX_SIZE = "wikidb.write-batch.max-size";
+    private final String CONFIG_WIKIDB_WRITE_BATCH_MAX_DELAY = "wikidb.write-batch.max-delay-ms";
+    private final String CONFIG_SEARCH_ENABLED = "search.enabled";
+    private final String CONFIG_HISTORY_ENABLED = "history.enabled";
+    private final String CONFIG_HISTORY_SNAPSHOT_INTERVAL = "history.snapshot-interval";
 
-    private Map<SqlQueries, String> sqls = new EnumMap<>(SqlQueries.class);
+    private static final int INDEX_MAX_PAGE_SIZE = 1000;
+    private static final int SEARCH_INDEX_BUILD_CHUNK = 500;
+    private static final int SEARCH_MAX_HITS = 100;
+    private static final int REVISION_WRITE_ATTEMPTS = 3;
+
+    private WikiStore store;
+
+    /**
+     * Null unless 'wikidb.snapshot.enabled', otherwise the store itself.
+     */
+    private SnapshotWikiStore snapshot;
+
+    /**
+     * Tells page events of this instance from those of the other database verticle instances.
+     */
+    private final String instanceId = UUID.randomUUID().toString();
 
     private String wikiDbQueue;
 
+    private String pageEventsAddress;
+
+    /**
+     * Null when batching is disabled ('wikidb.write-batch.max-size' of 1 or less).
+     */
+    private PageSaveBatcher saveBatcher;
+
+    private final SingleFlight<PageResult> pageQueries = new SingleFlight<>();
+
+    /**
+     * Null until the first build completes.
+     */
+    private SearchIndex searchIndex;
+
+    /**
+     * Pages changed while the search index is being built, null when no build is running.
+     */
+    private Set<String> changedDuringIndexBuild;
+
+    private boolean indexRebuildRequested;
+
+    private BlockMarkdown markdownRenderer;
+
+    private boolean historyEnabled;
+
+    private int historySnapshotInterval;
+
+    /**
+     * Tail of the pending revision writes of each page, so revisions of a page are numbered in write order.
+     */
+    private final Map<String, Future<Void>> revisionWrites = new HashMap<>();
+
     @Override
     public void start(Future<Void> startFuture) throws Exception {
-        loadSql()
-            .compose(v -> prepareDb())
+        long started = System.currentTimeMillis();
+        prepareDb()
             .compose(v -> setupHandlers())
-            .setHandler(startFuture.completer());
+            .setHandler(ar -> {
+                if (ar.succeeded()) {
+                    log.info("Store {} opened in {} ms", config().getString(CONFIG_WIKIDB_STORE, "jdbc"),
+                        System.currentTimeMillis() - started);
+                    if (snapshot != null) {
+                        vertx.eventBus().<JsonObject>consumer(pageEventsAddress, this::applyOtherInstanceChange);
+                    }
+                    if (config().getBoolean(CONFIG_SEARCH_ENABLED, true)) {
+                        vertx.eventBus().<JsonObject>consumer(pageEventsAddress, this::reindexChangedPage);
+                        buildSearchIndex();
+                    }
+                }
+                startFuture.completer().handle(ar);
+            });
     }
 
-    private Future<Void> loadSql() throws IOException {
-        Future<Void> future = Future.future();
-        String resourcePath = config().getString(CONFIG_WIKIDB_SQL_QUERIES_RES_FILE);
-        try (InputStream is = resourcePath == null?
-            getClass().getResourceAsStream(CONFIG_WIKIDB_SQL_QUERIES_RES_FILE_DEFAULT):
-            new FileInputStream(resourcePath)) {
-
-            Properties sqlProps = new Properties();
-            sqlProps.load(is);
-
-            sqls.put(SqlQueries.SQL_CREATE_PAGES_TABLE, sqlProps.getProperty("create-pages-table"));
-            sqls.put(SqlQueries.SQL_CREATE_PAGE, sqlProps.getProperty("create-page"));
-            sqls.put(SqlQueries.SQL_ALL_PAGES, sqlProps.getProperty("all-pages"));
-            sqls.put(SqlQueries.SQL_GET_PAGE, sqlProps.getProperty("get-page"));
-            sqls.put(SqlQueries.SQL_DELETE_PAGE, sqlProps.getProperty("delete-page"));
-            sqls.put(SqlQueries.SQL_SAVE_PAGE, sqlProps.getProperty("save-page"));
-            future.complete();
-        } catch (IOException ioe) {
-            future.fail(ioe);
+    private Future<Void> prepareDb() {
+        wikiDbQueue = config().getString(CONFIG_WIKIDB_QUEUE, CONFIG_WIKIDB_QUEUE);
+        pageEventsAddress = config().getString(CONFIG_WIKIDB_PAGE_EVENTS, CONFIG_WIKIDB_PAGE_EVENTS);
+        int writeBatchSize = config().getInteger(CONFIG_WIKIDB_WRITE_BATCH_MAX_SIZE, 100);
+        if (writeBatchSize > 1) {
+            saveBatcher = new PageSaveBatcher(vertx, writeBatchSize,
+                config().getLong(CONFIG_WIKIDB_WRITE_BATCH_MAX_DELAY, 10L), this::writeSaveBatch);
         }
-        return future;
+
+        markdownRenderer = new BlockMarkdown(
+            config().getLong(BlockMarkdown.CONFIG_BLOCK_CACHE_MAX_BYTES, 16L * 1024 * 1024));
+        historyEnabled = config().getBoolean(CONFIG_HISTORY_ENABLED, true);
+        historySnapshotInterval = Math.max(1, config().getInteger(CONFIG_HISTORY_SNAPSHOT_INTERVAL, 16));
+
+        String storeType = config().getString(CONFIG_WIKIDB_STORE, "jdbc");
+        switch (storeType) {
+            case "jdbc":
+                store = new JdbcWikiStore(vertx, config());
+                break;
+            case "log":
+                store = new LogWikiStore(vertx, config());
+                break;
+            default:
+                return Future.failedFuture(new IllegalArgumentException("Unknown '" + CONFIG_WIKIDB_STORE + "': " + storeType));
+        }
+        if (config().getBoolean(SnapshotWikiStore.CONFIG_SNAPSHOT_ENABLED, false)) {
+            snapshot = new SnapshotWikiStore(store, config());
+            store = snapshot;
+        }
+        return store.open();
     }
 
+    @Override
+    public void stop() throws Exception {
+        if (store != null) {
+            store.close();
+        }
+    }
 
-    private Future<Void> prepareDb() {
+    private Future<Void> setupHandlers() {
         Future<Void> future = Future.future();
-        wikiDbQueue = config().getString(CONFIG_WIKIDB_QUEUE, CONFIG_WIKIDB_QUEUE);
+        WikiMessageCodec.registerAll(vertx);
+        vertx.eventBus().<Object>consumer(wikiDbQueue)
+            .handler(this::handleRequest)
+            .completionHandler(future.completer());
+        return future;
+    }
+
+    private void handleRequest(Message<Object> reqData) {
+        Object body = reqData.body();
+        if (body == null) {
+            log.error("Empty message (headers: {}). Don't know what to do", reqData.headers());
+            reqData.fail(ErrorCodes.NO_ACTION_SPECIFIED.ordinal(), "No request provided");
+        } else if (body instanceof GetPage) {
+            this.queryPage(reqData, (GetPage) body);
+        } else if (body instanceof ListPages) {
+            this.indexHandler(reqData, (ListPages) body);
+        } else if (body instanceof SavePage) {
+            SavePage req = (SavePage) body;
+            if (req.isNewPage()) {
+                this.createPage(reqData, req);
+            } else {
+                this.updatePage(reqData, req);
+            }
+        } else if (body instanceof DeletePage) {
+            this.pageDeletionHandler(reqData, (DeletePage) body);
+        } else if (body instanceof ImportPages) {
+            this.importPages(reqData, (ImportPages) body);
+        } else if (body instanceof SearchPages) {
+            this.searchPages(reqData, (SearchPages) body);
+        } else if (body instanceof ListRevisions) {
+            this.listRevisions(reqData, (ListRevisions) body);
+        } else if (body instanceof GetRevision) {
+            this.getRevision(reqData, (GetRevision) body);
+        } else {
+            reqData.fail(ErrorCodes.BAD_ACTION.ordinal(), "Invalid request " + body.getClass().getName() + ". No handlers found");
+        }
+    }
+
 
-        dbClient = JDBCClient.createShared(vertx, new JsonObject()
-            .put("url", "jdbc:hsqldb:file:db/wiki")
-            .put("driver_class", "org.hsqldb.jdbcDriver")
-            .put("max_pool_size", 30));
+    private void pageDeletionHandler(Message<?> msg, DeletePage req) {
+        int pageId = req.getId();
 
-        dbClient.getConnection(res -> {
+        store.delete(pageId).setHandler(res -> {
             if (res.failed()) {
-                log.error("Cannot connect to database", res.cause());
-                future.fail(res.cause());
+                reportQueryError(msg, res.cause());
+                return;
+            }
+            if (res.result() != null) {
+                log.debug("Page with id={} was deleted", pageId);
+                publishPageChanged("delete-page", res.result());
             } else {
-                SQLConnection sqlConnection = res.result();
-                sqlConnection.execute(sqls.get(SqlQueries.SQL_CREATE_PAGES_TABLE), sqlRes -> {
-                    if (sqlRes.failed()) {
-                        log.error("Cannot create table in db", sqlRes.cause());
-                        future.fail(sqlRes.cause());
-                    } else {
-                        future.complete();
-                    }
-                });
+                log.warn("Cant delete page. No page with id={} found", pageId);
             }
+            msg.reply(null);
         });
-        return future;
     }
 
+    private void createPage(Message<?> msg, SavePage req) {
+        String title = req.getTitle();
+        String markdown = req.getMarkdown() == null ? "" : req.getMarkdown();
+        long now = System.currentTimeMillis();
+        renderMarkdown(markdown)
+            .compose(html -> store.create(new PageRecord(-1, title, markdown, html, 0, now)))
+            .setHandler(res -> {
+                if (res.succeeded()) {
+                    recordRevision(title, markdown, now);
+                }
+                pageWritten(msg, res.cause(), "create-page", title);
+            });
+    }
 
-    private Future<Void> setupHandlers() {
-        Future<Void> future = Future.future();
-        vertx.eventBus().<JsonObject>consumer(wikiDbQueue)
-            .handler(this::handleRequest)
-            .completionHandler(future.completer());
-        return future;
+    private void updatePage(Message<?> msg, SavePage req) {
+        if (saveBatcher != null) {
+            saveBatcher.submit(req, msg);
+            return;
+        }
+        String title = req.getTitle();
+        String markdown = req.getMarkdown() == null ? "" : req.getMarkdown();
+        long now = System.currentTimeMillis();
+        renderMarkdown(markdown)
+            .compose(html -> store.update(Collections.singletonList(
+                new PageRecord(req.getId(), title, markdown, html, 0, now))))
+            .setHandler(res -> {
+                if (res.failed()) {
+                    reportQueryError(msg, res.cause());
+                } else if (res.result().isEmpty()) {
+                    log.warn("Cant save page. No page with id={} found", req.getId());
+                    msg.reply(null);
+                } else {
+                    String name = res.result().get(0).getName();
+                    recordRevision(name, markdown, now);
+                    pageWritten(msg, null, "save-page", name);
+                }
+            });
     }
 
-    private void handleRequest(Message<JsonObject> reqData) {
-        if (reqData.headers().contains(ACTION)) {
-            log.error("No action in message (headers: {}, body: {}). Don't know what to do", reqData.headers(),
-                reqData.body().encodePrettily());
-            reqData.fail(ErrorCodes.NO_ACTION_SPECIFIED.ordinal(), "No action header provided");
+    private void pageWritten(Message<?> msg, Throwable failure, String action, String title) {
+        if (failure != null) {
+            reportQueryError(msg, failure);
+        } else {
+            log.debug("{} page named '{}'", action, title);
+            publishPageChanged(action, title);
+            msg.reply(null);
+        }
+    }
+
+    /**
+     * Render a batch of saves on a worker and store it with a single store update.
+     *
+     * @return ids of the pages stored, saves of pages that no longer exist are left out
+     */
+    private Future<Set<Integer>> writeSaveBatch(List<SavePage> saves) {
+        Future<List<PageRecord>> rendered = Future.future();
+        vertx.<List<PageRecord>>executeBlocking(f -> {
+            long now = System.currentTimeMillis();
+            List<PageRecord> pages = new ArrayList<>(saves.size());
+            for (SavePage save : saves) {
+                String markdown = save.getMarkdown() == null ? "" : save.getMarkdown();
+                pages.add(new PageRecord(save.getId(), save.getTitle(), markdown,
+                    markdownRenderer.render(markdown), 0, now));
+            }
+            f.complete(pages);
+        }, false, rendered.completer());
+
+        return rendered.compose(store::update).map(written -> {
+            log.debug("Saved batch of {} pages", written.size());
+            written.forEach(page -> {
+                recordRevision(page.getName(), page.getContent(), page.getModified());
+                publishPageChanged("save-page", page.getName());
+            });
+            return written.stream().map(PageRecord::getId).collect(toSet());
+        });
+    }
+
+    /**
+     * Create or overwrite pages by name, rendered on a worker and stored with a single store put.
+     */
+    private void importPages(Message<?> msg, ImportPages req) {
+        vertx.<List<PageRecord>>executeBlocking(f -> {
+            long now = System.currentTimeMillis();
+            List<PageRecord> pages = new ArrayList<>(req.size());
+            for (int i = 0; i < req.size(); i++) {
+                String markdown = req.getContents().get(i) == null ? "" : req.getContents().get(i);
+                pages.add(new PageRecord(-1, req.getNames().get(i), markdown,
+                    markdownRenderer.render(markdown), 0, now));
+            }
+            f.complete(pages);
+        }, false, renderRes -> {
+            if (renderRes.failed()) {
+                reportQueryError(msg, renderRes.cause());
+                return;
+            }
+            store.put(renderRes.result()).setHandler(putRes -> {
+                if (putRes.failed()) {
+                    reportQueryError(msg, putRes.cause());
+                } else {
+                    List<PageRecord> written = putRes.result();
+                    log.debug("Imported batch of {} pages", written.size());
+                    written.forEach(page -> recordRevision(page.getName(), page.getContent(), page.getModified()));
+                    indexWritten(written);
+                    publishPagesChanged("import-pages", written.stream().map(PageRecord::getName).collect(toList()));
+                    msg.reply(null);
+                }
+            });
+        });
+    }
+
+    /**
+     * Append the written content to the page history once the page write succeeded. The writer is not kept
+     * waiting: failures are only logged, the page itself is already stored.
+     */
+    private void recordRevision(String name, String content, long modified) {
+        if (!historyEnabled) {
             return;
         }
-        String action = reqData.headers().get(ACTION);
+        Future<Void> previous = revisionWrites.get(name);
+        Future<Void> done = Future.future();
+        revisionWrites.put(name, done);
+        Handler<AsyncResult<Void>> write = v -> writeRevision(name, content, modified, REVISION_WRITE_ATTEMPTS, res -> {
+            if (res.failed()) {
+                log.error("Cant record revision of page '" + name + "'", res.cause());
+            }
+            revisionWrites.remove(name, done);
+            done.complete();
+        });
+        if (previous == null) {
+            write.handle(Future.succeededFuture());
+        } else {
+            previous.setHandler(write);
+        }
+    }
 
-        switch (action) {
-            case "get-page":
-                this.queryPage(reqData);
-                break;
-            case "all-pages":
-                this.indexHandler(reqData);
-                break;
-            case "create-page":
-                this.createPage(reqData);
-                break;
-            case "save-page":
-                this.updatePage(reqData);
-                break;
-            case "delete-page":
-                this.pageDeletionHandler(reqData);
-                break;
-            default:
-                reqData.fail(ErrorCodes.BAD_ACTION.ordinal(), "Invalid action '" + action + "'. No handlers found");
+    /**
+     * Store the content as the next revision, as a delta against the latest one. Another database verticle
+     * instance may take the number first, the write is then retried on top of its revision.
+     */
+    private void writeRevision(String name, String content, long modified, int attempts,
+                               Handler<AsyncResult<Void>> handler) {
+        store.revisionChain(name, -1)
+            .compose(chain -> {
+                Future<RevisionRecord> next = Future.future();
+                vertx.<RevisionRecord>executeBlocking(f -> f.complete(nextRevision(name, chain, content, modified)),
+                    false, next.completer());
+                return next;
+            })
+            .compose(revision -> revision == null ? Future.<Void>succeededFuture() : store.addRevision(revision))
+            .setHandler(res -> {
+                if (res.failed() && attempts > 1) {
+                    log.debug("Retrying revision of page '{}': {}", name, res.cause().getMessage());
+                    writeRevision(name, content, modified, attempts - 1, handler);
+                } else {
+                    handler.handle(res);
+                }
+            });
+    }
+
+    /**
+     * @return the revision following the chain, a snapshot every 'history.snapshot-interval' revisions or
+     * when it is not bigger than the delta, null when the content did not change
+     */
+    private RevisionRecord nextRevision(String name, List<RevisionRecord> chain, String content, long modified) {
+        byte[] snapshot = PageDelta.snapshot(content);
+        if (chain.isEmpty()) {
+            return new RevisionRecord(name, 1, true, modified, content.length(), snapshot);
+        }
+        String latest = rebuild(chain);
+        if (latest.equals(content)) {
+            return null;
         }
+        int number = chain.get(chain.size() - 1).getRevision() + 1;
+        if (chain.size() >= historySnapshotInterval) {
+            return new RevisionRecord(name, number, true, modified, content.length(), snapshot);
+        }
+        byte[] delta = PageDelta.delta(latest, content);
+        return delta.length < snapshot.length
+            ? new RevisionRecord(name, number, false, modified, content.length(), delta)
+            : new RevisionRecord(name, number, true, modified, content.length(), snapshot);
     }
 
+    private static String rebuild(List<RevisionRecord> chain) {
+        String content = null;
+        for (RevisionRecord revision : chain) {
+            content = PageDelta.apply(content, revision.getData());
+        }
+        return content;
+    }
 
-    private void pageDeletionHandler(Message<JsonObject> ctxt) {
-        String pageId = ctxt.request().getParam("id");
+    private void listRevisions(Message<?> msg, ListRevisions req) {
+        store.revisions(req.getName()).setHandler(res -> {
+            if (res.failed()) {
+                reportQueryError(msg, res.cause());
+                return;
+            }
+            List<RevisionRecord> revisions = res.result();
+            int[] numbers = new int[revisions.size()];
+            long[] modified = new long[revisions.size()];
+            int[] lengths = new int[revisions.size()];
+            for (int i = 0; i < revisions.size(); i++) {
+                numbers[i] = revisions.get(i).getRevision();
+                modified[i] = revisions.get(i).getModified();
+                lengths[i] = revisions.get(i).getContentLength();
+            }
+            msg.reply(new RevisionList(numbers, modified, lengths));
+        });
+    }
 
-        dbClient.getConnection(connRes -> {
-            if (connRes.failed()) {
-                ctxt.fail(connRes.cause());
-            } else {
-                connRes.result().updateWithParams(SQL_DELETE_PAGE, new JsonArray(singletonList(pageId)), sqlRes -> {
-                    int updated = sqlRes.result().getUpdated();
-                    connRes.result().close();
-                    if (updated == 1) {
-                        log.debug("Page with id={} was deleted", pageId);
-                    } else {
-                        log.warn("Cant delete page. No page with id={} found", pageId);
-                    }
-                    redirect(ctxt, null);
-                });
+    /**
+     * Rebuilds the revision on a worker from the last snapshot before it.
+     */
+    private void getRevision(Message<?> msg, GetRevision req) {
+        store.revisionChain(req.getName(), req.getRevision()).setHandler(res -> {
+            if (res.failed()) {
+                reportQueryError(msg, res.cause());
+                return;
+            }
+            List<RevisionRecord> chain = res.result();
+            // the jdbc store ends the chain at the latest revision before a missing one
+            if (chain.isEmpty() || chain.get(chain.size() - 1).getRevision() != req.getRevision()) {
+                msg.reply(PageRevision.NOT_FOUND);
+                return;
             }
+            RevisionRecord last = chain.get(chain.size() - 1);
+            vertx.<String>executeBlocking(f -> f.complete(rebuild(chain)), false, rebuildRes -> {
+                if (rebuildRes.failed()) {
+                    reportQueryError(msg, rebuildRes.cause());
+                } else {
+                    msg.reply(new PageRevision(true, last.getRevision(), rebuildRes.result(), last.getModified()));
+                }
+            });
         });
     }
 
-    private void createPage(Message<JsonObject> ctxt) {
-        String pageName = ctxt.request().getParam("name");
-        redirect(ctxt, pageName);
+    /**
+     * Markdown is rendered once per write on a worker thread and stored with the page,
+     * so reads never pay for it. Blocks unchanged since a previous render are not rendered again.
+     */
+    private Future<String> renderMarkdown(String markdown) {
+        Future<String> future = Future.future();
+        vertx.<String>executeBlocking(f -> f.complete(markdownRenderer.render(markdown)), false, future.completer());
+        return future;
+    }
+
+    /**
+     * Notify every http verticle that rendered copies of the page are stale.
+     * Page name may be null when it is not known, listeners should then drop everything.
+     */
+    private void publishPageChanged(String action, String pageName) {
+        if (pageName != null) {
+            pageQueries.forget(pageName);
+        }
+        vertx.eventBus().publish(pageEventsAddress, new JsonObject()
+            .put(ACTION, action)
+            .put("page", pageName)
+            .put("origin", instanceId));
+    }
+
+    /**
+     * One notification for a batch of pages, so a big import does not flood the listeners. The page name is
+     * null for listeners that do not know the 'pages' list: they drop everything.
+     */
+    private void publishPagesChanged(String action, List<String> pageNames) {
+        pageNames.forEach(pageQueries::forget);
+        vertx.eventBus().publish(pageEventsAddress, new JsonObject()
+            .put(ACTION, action)
+            .putNull("page")
+            .put("pages", new JsonArray(pageNames))
+            .put("origin", instanceId));
     }
 
-    private void updatePage(Message<JsonObject> ctxt) {
-        HttpServerRequest req = ctxt.request();
-        String pageId = req.getParam("id");
-        String title = req.getParam("title");
-        String markdown = req.getParam("markdown");
-        Boolean newPage = Boolean.valueOf(req.getParam("newPage"));
+    /**
+     * Keeps the page snapshot of this instance in sync with writes made by the other database verticles.
+     */
+    private void applyOtherInstanceChange(Message<JsonObject> event) {
+        if (instanceId.equals(event.body().getString("origin"))) {
+            return;
+        }
+        JsonArray pageNames = event.body().getJsonArray("pages");
+        if (pageNames != null) {
+            pageNames.forEach(name -> {
+                snapshot.pageChanged((String) name, false);
+                pageQueries.forget((String) name);
+            });
+            return;
+        }
+        String pageName = event.body().getString("page");
+        snapshot.pageChanged(pageName, "delete-page".equals(event.body().getString(ACTION)));
+        if (pageName != null) {
+            pageQueries.forget(pageName);
+        }
+    }
 
-        dbClient.getConnection(connRes -> {
-            if (connRes.failed()) {
-                ctxt.fail(connRes.cause());
+    /**
+     * Concurrent lookups of the same page share one query.
+     */
+    private void queryPage(Message<?> msg, GetPage req) {
+        pageQueries.execute(req.getName(), () -> fetchPage(req.getName()), res -> {
+            if (res.failed()) {
+                reportQueryError(msg, res.cause());
             } else {
-                SQLConnection conn = connRes.result();
-                String sql = newPage ? SQL_CREATE_PAGE : SQL_SAVE_PAGE;
-                JsonArray params = newPage ? new JsonArray(asList(title, markdown)) : new JsonArray(asList(markdown, pageId));
-                conn.updateWithParams(sql, params, sqlRes -> {
-                    conn.close();
-                    if (sqlRes.failed()) {
-                        ctxt.fail(sqlRes.cause());
-                    } else {
-                        log.debug("{} page named '{}'", newPage? "Create": "Update", title);
-                        redirect(ctxt, title);
-                    }
-                });
+                msg.reply(res.result());
             }
         });
     }
 
-    private void queryPage(Message<JsonObject> msg) {
-        String pageName = msg.body().getString("page");
-        dbClient.queryWithParams(sqls.get(SqlQueries.SQL_GET_PAGE), new JsonArray(singletonList(pageName)), fetchResult -> {
-            if (fetchResult.failed()) {
-                reportQueryError(msg, fetchResult.cause());
-            } else {
-                JsonObject resp = new JsonObject();
-                ResultSet resSet = fetchResult.result();
-                if (resSet.getNumRows() == 0) {
-                    resp.put("found", false);
+    private Future<PageResult> fetchPage(String pageName) {
+        return store.get(pageName);
+    }
+
+    private void searchPages(Message<?> msg, SearchPages req) {
+        if (searchIndex == null) {
+            msg.fail(ErrorCodes.SEARCH_UNAVAILABLE.ordinal(), "Search index is not built yet");
+            return;
+        }
+        List<SearchIndex.Hit> hits = searchIndex.search(req.getQuery(), Math.max(1, Math.min(req.getLimit(), SEARCH_MAX_HITS)));
+        List<String> names = new ArrayList<>(hits.size());
+        double[] scores = new double[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            names.add(hits.get(i).getName());
+            scores[i] = hits.get(i).getScore();
+        }
+        msg.reply(new SearchHits(names, scores));
+    }
+
+    /**
+     * Build a fresh search index from all pages, chunk by chunk, tokenizing on a worker.
+     * The current index keeps answering until the new one replaces it.
+     */
+    private void buildSearchIndex() {
+        if (changedDuringIndexBuild != null) {
+            indexRebuildRequested = true;
+            return;
+        }
+        changedDuringIndexBuild = new HashSet<>();
+        indexChunk(new SearchIndex(), -1, System.currentTimeMillis());
+    }
+
+    private void indexChunk(SearchIndex building, int afterId, long started) {
+        store.scan(afterId, SEARCH_INDEX_BUILD_CHUNK).setHandler(queryRes -> {
+            if (queryRes.failed()) {
+                log.error("Search index build failed", queryRes.cause());
+                changedDuringIndexBuild = null;
+                return;
+            }
+            List<PageRecord> rows = queryRes.result();
+            vertx.<List<Map<String, Integer>>>executeBlocking(f -> f.complete(rows.stream()
+                .map(row -> SearchIndex.analyze(row.getContent()))
+                .collect(toList())), false, analyzeRes -> {
+                if (analyzeRes.failed()) {
+                    log.error("Search index build failed", analyzeRes.cause());
+                    changedDuringIndexBuild = null;
+                    return;
+                }
+                for (int i = 0; i < rows.size(); i++) {
+                    PageRecord row = rows.get(i);
+                    building.put(row.getId(), row.getName(), row.getVersion(), analyzeRes.result().get(i));
+                }
+                if (rows.size() == SEARCH_INDEX_BUILD_CHUNK) {
+                    indexChunk(building, rows.get(rows.size() - 1).getId(), started);
+                    return;
+                }
+                searchIndex = building;
+                log.info("Search index built: {} pages in {} ms", building.size(), System.currentTimeMillis() - started);
+
+                Set<String> changed = changedDuringIndexBuild;
+                changedDuringIndexBuild = null;
+                if (indexRebuildRequested) {
+                    indexRebuildRequested = false;
+                    buildSearchIndex();
                 } else {
-                    resp.put("found", true);
-                    JsonArray row = resSet.getResults().get(0);
-                    resp.put("id", row.getInteger(0));
-                    resp.put("rawContent", row.getString(1));
+                    changed.forEach(this::reindexPage);
                 }
-                msg.reply(resp);
+            });
+        });
+    }
+
+    /**
+     * Keeps the search index of this instance in sync with writes made by any database verticle.
+     */
+    private void reindexChangedPage(Message<JsonObject> event) {
+        JsonArray pageNames = event.body().getJsonArray("pages");
+        if (pageNames != null) {
+            // the writing instance indexed them from the records it wrote
+            if (!instanceId.equals(event.body().getString("origin"))) {
+                pageNames.forEach(name -> reindexChangedPage((String) name));
             }
+            return;
+        }
+        reindexChangedPage(event.body().getString("page"));
+    }
+
+    private void reindexChangedPage(String pageName) {
+        if (pageName == null) {
+            buildSearchIndex();
+        } else if (changedDuringIndexBuild != null) {
+            changedDuringIndexBuild.add(pageName);
+        } else {
+            reindexPage(pageName);
+        }
+    }
+
+    /**
+     * Index pages from the records just written, without reading them back.
+     */
+    private void indexWritten(List<PageRecord> written) {
+        if (changedDuringIndexBuild != null) {
+            written.forEach(page -> changedDuringIndexBuild.add(page.getName()));
+            return;
+        }
+        if (searchIndex == null) {
+            return;
+        }
+        vertx.<List<Map<String, Integer>>>executeBlocking(f -> f.complete(written.stream()
+            .map(page -> SearchIndex.analyze(page.getContent()))
+            .collect(toList())), false, analyzeRes -> {
+            if (analyzeRes.failed()) {
+                log.error("Cant index imported pages", analyzeRes.cause());
+                return;
+            }
+            for (int i = 0; i < written.size(); i++) {
+                PageRecord page = written.get(i);
+                searchIndex.put(page.getId(), page.getName(), page.getVersion(), analyzeRes.result().get(i));
+            }
+        });
+    }
+
+    /**
+     * Reads run on pooled connections and may finish out of order, the index keeps the latest version read.
+     */
+    private void reindexPage(String pageName) {
+        if (searchIndex == null) {
+            return;
+        }
+        fetchPage(pageName).setHandler(fetchRes -> {
+            if (fetchRes.failed()) {
+                log.error("Cant reindex page '{}'", pageName, fetchRes.cause());
+                return;
+            }
+            PageResult page = fetchRes.result();
+            if (!page.isFound()) {
+                searchIndex.remove(pageName);
+                return;
+            }
+            vertx.<Map<String, Integer>>executeBlocking(f -> f.complete(SearchIndex.analyze(page.getRawContent())), true,
+                analyzeRes -> {
+                    if (analyzeRes.succeeded()) {
+                        searchIndex.put(page.getId(), pageName, page.getVersion(), analyzeRes.result());
+                    }
+                });
         });
     }
 
-    private void reportQueryError(Message<JsonObject> message, Throwable cause) {
+    private void reportQueryError(Message<?> message, Throwable cause) {
         log.error("Database query error", cause);
         message.fail(ErrorCodes.DB_ERROR.ordinal(), cause.getMessage());
     }
 
-    private void indexHandler(Message<JsonObject> routingContext) {
-        dbClient.getConnection(ar -> {
-            if (ar.failed()) {
-                routingContext.fail(ar.cause());
+    /**
+     * Keyset pagination by name: replies at most 'limit' names following 'after' (or from the start)
+     * and a 'next' cursor when more names may follow.
+     */
+    private void indexHandler(Message<?> msg, ListPages req) {
+        int limit = Math.max(1, Math.min(req.getLimit(), INDEX_MAX_PAGE_SIZE));
+        store.list(req.getAfter(), limit, req.isWithContent()).setHandler(res -> {
+            if (res.failed()) {
+                reportQueryError(msg, res.cause());
             } else {
-                SQLConnection sqlConnection = ar.result();
-                sqlConnection.query(SQL_ALL_PAGES, sqlRes -> {
-                    sqlConnection.close();
-                    if (sqlRes.failed()) {
-                        routingContext.fail(sqlRes.cause());
-                    } else {
-                        List<String> pageNames = sqlRes.result().getResults().stream()
-                            .map(jsonArr -> jsonArr.getString(0))
-                            .sorted()
-                            .collect(toList());
-
-                        routingContext.put("title", "Wiki home")
-                            .put("pages", pageNames);
-                        freemarker.render(routingContext, "templates", "/index.ftl", buffRes -> {
-                            if (buffRes.failed()) {
-                                routingContext.fail(buffRes.cause());
-                            } else {
-                                routingContext.response().putHeader(HttpHeaders.CONTENT_TYPE, "text/html")
-                                    .end(buffRes.result());
-                            }
-                        });
-                    }
-                });
+                msg.reply(res.result());
             }
         });
     }
@@ -251,15 +677,7 @@ public class DatabaseVerticle extends AbstractVerticle {
     enum ErrorCodes {
         NO_ACTION_SPECIFIED,
         BAD_ACTION,
-        DB_ERROR
-    }
-
-    enum SqlQueries {
-        SQL_CREATE_PAGES_TABLE,
-        SQL_GET_PAGE,
-        SQL_CREATE_PAGE,
-        SQL_SAVE_PAGE,
-        SQL_ALL_PAGES,
-        SQL_DELETE_PAGE
+        DB_ERROR,
+        SEARCH_UNAVAILABLE
     }
 }
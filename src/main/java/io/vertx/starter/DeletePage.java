@@ -0,0 +1,35 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Delete the page with {@code id}. Title is only used to notify caches. Replied with an empty body.
+ */
+public class DeletePage implements WikiMessage {
+
+    private final int id;
+    private final String title;
+
+    public DeletePage(int id, String title) {
+        this.id = id;
+        this.title = title;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(id);
+        WireReader.writeString(buffer, title);
+    }
+
+    static DeletePage readFrom(WireReader reader) {
+        return new DeletePage(reader.readInt(), reader.readString());
+    }
+}
@@ -0,0 +1,28 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Fetch a page by name, replied with {@link PageResult}.
+ */
+public class GetPage implements WikiMessage {
+
+    private final String name;
+
+    public GetPage(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeString(buffer, name);
+    }
+
+    static GetPage readFrom(WireReader reader) {
+        return new GetPage(reader.readString());
+    }
+}
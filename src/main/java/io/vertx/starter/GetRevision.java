@@ -0,0 +1,36 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Fetch the markdown of one revision of a page, replied with {@link PageRevision}. A negative revision
+ * asks for the latest one.
+ */
+public class GetRevision implements WikiMessage {
+
+    private final String name;
+    private final int revision;
+
+    public GetRevision(String name, int revision) {
+        this.name = name;
+        this.revision = revision;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeString(buffer, name);
+        buffer.appendInt(revision);
+    }
+
+    static GetRevision readFrom(WireReader reader) {
+        return new GetRevision(reader.readString(), reader.readInt());
+    }
+}
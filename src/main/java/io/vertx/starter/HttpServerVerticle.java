@@ -1,10 +1,18 @@
 package io.vertx.starter;
 
-import com.github.rjeschke.txtmark.Processor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.Future;
-import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
 import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
@@ -14,9 +22,14 @@ import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.templ.FreeMarkerTemplateEngine;
 import io.vertx.ext.web.templ.TemplateEngine;
 
-import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
+import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
+import static io.netty.handler.codec.http.HttpResponseStatus.NOT_FOUND;
+import static io.netty.handler.codec.http.HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE;
 import static io.netty.handler.codec.http.HttpResponseStatus.SEE_OTHER;
+import static io.netty.handler.codec.http.HttpResponseStatus.SERVICE_UNAVAILABLE;
 import static java.lang.Boolean.valueOf;
 
 public class HttpServerVerticle extends AbstractVerticle {
@@ -25,28 +38,96 @@ public class HttpServerVerticle extends AbstractVerticle {
     public static final String ACTION = "action";
     public static final String CONFIG_HTTP_SERVER_PORT = "server.port";
     public static final String CONFIG_WIKIDB_QUEUE = "wikidb.queue";
+    public static final String CONFIG_WIKIDB_PAGE_EVENTS = "wikidb.page-events";
+    public static final String CONFIG_PAGE_CACHE_MAX_BYTES = "cache.max-bytes";
+    public static final String CONFIG_INDEX_PAGE_SIZE = "index.page-size";
+    public static final String CONFIG_RENDER_POOL_NAME = "render.pool-name";
+    public static final String CONFIG_RENDER_POOL_SIZE = "render.pool-size";
+    public static final String CONFIG_RENDER_TIMEOUT_MS = "render.timeout-ms";
+    public static final String CONFIG_RENDER_MAX_INPUT_BYTES = "render.max-input-bytes";
+    public static final String CONFIG_BULK_BATCH_SIZE = "bulk.batch-size";
+    public static final String CONFIG_BULK_EXPORT_CHUNK_BYTES = "bulk.export-chunk-bytes";
+    public static final String CONFIG_COMPRESSION_ENABLED = "compression.enabled";
+    public static final String CONFIG_COMPRESSION_LEVEL = "compression.level";
+    public static final String CONFIG_COMPRESSION_MIN_BYTES = "compression.min-bytes";
 
-    private String wikiDbQueue;
+    private static final int PAGE_LIST_CHUNK_SIZE = 500;
 
+    private AdmissionControl admission;
 
-    private TemplateEngine freemarker = FreeMarkerTemplateEngine.create();
+    private PageCache pageCache;
+
+    private int indexPageSize;
+
+    private int maxMarkdownLength;
+
+    /**
+     * Shared by every instance, so each template is compiled once per JVM.
+     */
+    private static final TemplateEngine FREEMARKER = FreeMarkerTemplateEngine.create();
+
+    private PageRenderer renderer;
+
+    private ResponseCompression compression;
+
+    private final SingleFlight<PageResult> pageFetches = new SingleFlight<>();
+
+    private final SingleFlight<RenderedPage> pageRenders = new SingleFlight<>();
 
     @Override
     public void start(Future<Void> ftre) throws Exception {
-        wikiDbQueue = config().getString(CONFIG_WIKIDB_QUEUE, CONFIG_WIKIDB_QUEUE);
+        admission = new AdmissionControl(vertx, config().getString(CONFIG_WIKIDB_QUEUE, CONFIG_WIKIDB_QUEUE), config());
         Integer serverPort = config().getInteger(CONFIG_HTTP_SERVER_PORT, 8080);
 
+        WikiMessageCodec.registerAll(vertx);
+        indexPageSize = config().getInteger(CONFIG_INDEX_PAGE_SIZE, 100);
+        maxMarkdownLength = config().getInteger(CONFIG_RENDER_MAX_INPUT_BYTES, 1024 * 1024);
+        compression = new ResponseCompression(
+            config().getBoolean(CONFIG_COMPRESSION_ENABLED, true),
+            config().getInteger(CONFIG_COMPRESSION_LEVEL, 6),
+            config().getInteger(CONFIG_COMPRESSION_MIN_BYTES, 1024));
+        renderer = new PageRenderer(vertx, FREEMARKER,
+            config().getString(CONFIG_RENDER_POOL_NAME, "wiki-render"),
+            config().getInteger(CONFIG_RENDER_POOL_SIZE, Runtime.getRuntime().availableProcessors()),
+            config().getLong(CONFIG_RENDER_TIMEOUT_MS, 2000L),
+            compression);
+        pageCache = new PageCache(config().getLong(CONFIG_PAGE_CACHE_MAX_BYTES, 32L * 1024 * 1024));
+        vertx.eventBus().<JsonObject>consumer(config().getString(CONFIG_WIKIDB_PAGE_EVENTS, CONFIG_WIKIDB_PAGE_EVENTS),
+            this::pageChangedHandler);
+
         Router router = Router.router(vertx);
+        router.route().handler(WikiMetrics::routeTimer);
         router.get("/").handler(this::indexHandler);
         router.get("/wiki/:page").handler(this::pageRenderingHandler);
-        router.post().handler(BodyHandler.create());
+        router.get("/wiki/:page/revisions").handler(this::revisionListHandler);
+        router.get("/wiki/:page/revisions/:revision").handler(this::revisionHandler);
+        router.get("/wiki/:page/diff").handler(this::diffHandler);
+        router.get("/pages").handler(this::pageListStreamHandler);
+        router.get("/search").handler(this::searchHandler);
+        router.get("/stats/cache").handler(this::cacheStatsHandler);
+        router.get("/stats/render").handler(this::renderStatsHandler);
+        router.get("/stats/admission").handler(this::admissionStatsHandler);
+        router.get("/metrics").handler(WikiMetrics::scrapeHandler);
+        router.get("/ready").handler(this::readinessHandler);
+
+        BulkApi bulkApi = new BulkApi(admission, config().getInteger(CONFIG_BULK_BATCH_SIZE, 500), maxMarkdownLength,
+            ServerOptions.maxBodyBytes(config()), config().getLong(CONFIG_BULK_EXPORT_CHUNK_BYTES, 1024L * 1024));
+        router.get("/bulk/export").handler(bulkApi::exportHandler);
+        // streamed, must be routed before the body handler buffers it
+        router.post("/bulk/import").handler(bulkApi::importHandler);
+
+        router.post().handler(BodyHandler.create().setBodyLimit(ServerOptions.maxBodyBytes(config())));
         router.post("/save").handler(this::pageUpdateHandler);
         router.post("/create").handler(this::pageCreateHandler);
         router.post("/delete").handler(this::pageDeletionHandler);
+        router.route().failureHandler(this::overloadHandler);
 
-        vertx.createHttpServer().requestHandler(router::accept).listen(serverPort, res -> {
+        // rendered pages carry their own gzip, the server compresses every other response on the fly
+        HttpServerOptions serverOptions = ServerOptions.httpServerOptions(config(), compression);
+        vertx.createHttpServer(serverOptions).requestHandler(router::accept).listen(serverPort, res -> {
             if (res.succeeded()) {
-                log.info("Start http server on port={}", serverPort);
+                log.info("Start http server on port={} (ssl={}, native transport={})", serverPort,
+                    serverOptions.isSsl(), vertx.isNativeTransportEnabled());
                 ftre.complete();
             } else {
                 log.error("Cant start http server", res.cause());
@@ -55,13 +136,21 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
 
+    @Override
+    public void stop() throws Exception {
+        renderer.close();
+    }
 
     private void pageDeletionHandler(RoutingContext ctxt) {
         String id = ctxt.request().getParam("id");
         log.debug("Handle page (id={}) deletion http method", id);
-        JsonObject request = new JsonObject().put("id", id);
-        DeliveryOptions options = new DeliveryOptions().addHeader(ACTION, "delete-page");
-        vertx.eventBus().send(wikiDbQueue, request, options, reply -> {
+        Integer pageId = parseInteger(id);
+        if (pageId == null) {
+            ctxt.response().setStatusCode(BAD_REQUEST.code()).end();
+            return;
+        }
+        DeletePage request = new DeletePage(pageId, ctxt.request().getParam("title"));
+        admission.send(request, reply -> {
             if (reply.succeeded()) {
                 ctxt.response().setStatusCode(303);
                 ctxt.response().putHeader("Location", "/");
@@ -88,16 +177,22 @@ public class HttpServerVerticle extends AbstractVerticle {
 
     private void pageUpdateHandler(RoutingContext ctxt) {
         String title = ctxt.request().getParam("title");
-        JsonObject request = new JsonObject()
-            .put("id", ctxt.request().getParam("id"))
-            .put("title", title)
-            .put("markdown", ctxt.request().getParam("markdown"));
+        String markdown = ctxt.request().getParam("markdown");
+        if (markdown != null && markdown.length() > maxMarkdownLength) {
+            log.warn("Page (title={}) is too large to save: {} chars", title, markdown.length());
+            ctxt.response().setStatusCode(REQUEST_ENTITY_TOO_LARGE.code()).end();
+            return;
+        }
+        boolean newPage = valueOf(ctxt.request().getParam("newPage"));
+        Integer pageId = newPage ? Integer.valueOf(-1) : parseInteger(ctxt.request().getParam("id"));
+        if (pageId == null) {
+            ctxt.response().setStatusCode(BAD_REQUEST.code()).end();
+            return;
+        }
+        SavePage request = new SavePage(pageId, title, markdown, newPage);
 
         log.debug("Handle page (title={}) update http method", title);
-        DeliveryOptions options = new DeliveryOptions()
-            .addHeader(ACTION, valueOf(ctxt.request().getParam("newPage")) ? "create-page" : "save-page");
-
-        vertx.eventBus().send(wikiDbQueue, request, options, reply -> {
+        admission.send(request, reply -> {
             if (reply.succeeded()) {
                 redirect(ctxt, title);
             } else {
@@ -106,66 +201,473 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
 
+    private static Integer parseInteger(String id) {
+        if (id == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(id);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Page names come from a single path segment, so they never clash with this key.
+     */
+    private static final String INDEX_CACHE_KEY = "/";
+
+    private static final CharSequence TEXT_HTML = HttpHeaders.createOptimized("text/html");
+
     private static final String EMPTY_PAGE_TMPL =
         "This is the new empty page\n\nUse markdown syntax to write you text";
 
     private void pageRenderingHandler(RoutingContext rCtxt) {
         String pageName = rCtxt.request().getParam("page");
 
-        JsonObject jsonRequest = new JsonObject().put("page", pageName);
-        log.debug("Handle page (page={}) render http method", pageName);
+        RenderedPage cached = pageCache.get(pageName);
+        if (cached != null) {
+            log.debug("Serve page (page={}) from cache", pageName);
+            respond(rCtxt, cached);
+            return;
+        }
+        long cacheGeneration = pageCache.generation();
 
-        DeliveryOptions deliveryOptions = new DeliveryOptions().addHeader(ACTION, "get-page");
+        log.debug("Handle page (page={}) render http method", pageName);
 
-        vertx.eventBus().send(wikiDbQueue, jsonRequest, deliveryOptions, res -> {
+        pageFetches.execute(pageName, () -> fetchPage(pageName), res -> {
             if (res.failed()) {
                 rCtxt.fail(res.cause());
+                return;
+            }
+            PageResult body = res.result();
+            long modified = body.getModified();
+            String etag = body.isFound() ? ConditionalGet.pageEtag(body.getId(), body.getVersion()) : null;
+
+            if (endIfNotModified(rCtxt, etag, modified)) {
+                return;
+            }
+
+            String renderKey = pageName + '\u0000' + (etag == null ? "" : etag);
+            pageRenders.execute(renderKey, () -> renderPage(rCtxt, pageName, body, etag, cacheGeneration), renderRes -> {
+                if (renderRes.failed()) {
+                    renderFailed(rCtxt, renderRes.cause());
+                } else {
+                    respond(rCtxt, renderRes.result());
+                }
+            });
+        });
+    }
+
+    private Future<PageResult> fetchPage(String pageName) {
+        Future<PageResult> future = Future.future();
+        GetPage request = new GetPage(pageName);
+        admission.<PageResult>send(request, res -> {
+            if (res.failed()) {
+                future.fail(res.cause());
             } else {
-                JsonObject body = (JsonObject) res.result().body();
-                boolean found = body.getBoolean("found");
-                String rawContent = body.getString("rawContent", EMPTY_PAGE_TMPL);
-
-                context.put("title", pageName);
-                context.put("id", body.getInteger("id", -1));
-                context.put("newPage", Boolean.toString(found));
-                context.put("rawContent", rawContent);
-                context.put("content", Processor.process(rawContent));
-                context.put("timestamp", new Date().toString());
-
-                freemarker.render(rCtxt, "templates", "/page.ftl", renderRes -> {
-                    if (renderRes.failed()) {
-                        rCtxt.fail(renderRes.cause());
-                    } else {
-                        rCtxt.response()
-                            .putHeader(HttpHeaders.CONTENT_TYPE, "text/html")
-                            .end(renderRes.result());
-                    }
-                });
+                future.complete(res.result().body());
+            }
+        });
+        return future;
+    }
+
+    private Future<RenderedPage> renderPage(RoutingContext rCtxt, String pageName, PageResult body, String etag,
+                                            long cacheGeneration) {
+        boolean found = body.isFound();
+        String rawContent = found ? body.getRawContent() : EMPTY_PAGE_TMPL;
+        long modified = body.getModified();
+        // the warm-up renders made up page names, they must not fill the cache
+        boolean cached = found || Startup.isReady();
+
+        rCtxt.put("title", pageName);
+        rCtxt.put("id", body.getId());
+        rCtxt.put("newPage", !found);
+        rCtxt.put("rawContent", rawContent);
+        String html = body.getHtml();
+        rCtxt.put("content", html);
+        rCtxt.put("timestamp", modified > 0 ? ConditionalGet.httpDate(modified) : "never");
+
+        return renderer.render(rCtxt, "/page.ftl", html == null ? rawContent : null)
+            .compose(buffer -> renderer.prepare(buffer, etag, modified, cached).map(page -> {
+                if (cached) {
+                    pageCache.put(pageName, page, cacheGeneration);
+                }
+                return page;
+            }));
+    }
+
+    private void renderFailed(RoutingContext ctxt, Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            log.warn(cause.getMessage());
+            ctxt.response().setStatusCode(SERVICE_UNAVAILABLE.code()).end();
+        } else {
+            ctxt.fail(cause);
+        }
+    }
+
+    /**
+     * Serves the gzipped body when the page has one and the client accepts it. With compression on,
+     * Content-Encoding is always set so the server does not compress the page again. With compression off
+     * nothing compresses the page, and 'identity', which is not a content coding, is not sent.
+     */
+    private void respond(RoutingContext ctxt, RenderedPage page) {
+        boolean gzip = page.getGzipBody() != null && ResponseCompression.acceptsGzip(ctxt.request());
+        String etag = gzip ? page.getGzipEtag() : page.getEtag();
+        HttpServerResponse resp = ctxt.response();
+        if (compression.isEnabled()) {
+            resp.putHeader(HttpHeaderNames.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        if (ConditionalGet.isNotModified(ctxt.request(), etag, page.getLastModified())) {
+            ConditionalGet.endNotModified(resp, etag, page.getLastModifiedDate());
+            return;
+        }
+        ConditionalGet.putValidators(resp, etag, page.getLastModifiedDate());
+        if (compression.isEnabled()) {
+            resp.putHeader(HttpHeaders.CONTENT_ENCODING, gzip ? HttpHeaderValues.GZIP : HttpHeaderValues.IDENTITY);
+        }
+        resp.putHeader(HttpHeaders.CONTENT_TYPE, TEXT_HTML).end(gzip ? page.getGzipBody() : page.getBody());
+    }
+
+    /**
+     * Conditional check made before rendering, when it is not known yet whether the page will be gzipped:
+     * a client accepting gzip may hold either representation.
+     *
+     * @return true when a 304 was sent
+     */
+    private boolean endIfNotModified(RoutingContext ctxt, String etag, long modified) {
+        HttpServerRequest req = ctxt.request();
+        String matched = null;
+        if (compression.isEnabled() && ResponseCompression.acceptsGzip(req)
+            && ConditionalGet.isNotModified(req, ResponseCompression.gzipEtag(etag), modified)) {
+            matched = ResponseCompression.gzipEtag(etag);
+        } else if (ConditionalGet.isNotModified(req, etag, modified)) {
+            matched = etag;
+        } else {
+            return false;
+        }
+        if (compression.isEnabled()) {
+            ctxt.response().putHeader(HttpHeaderNames.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        ConditionalGet.endNotModified(ctxt.response(), matched, modified);
+        return true;
+    }
+
+    private void pageChangedHandler(Message<JsonObject> event) {
+        JsonArray pageNames = event.body().getJsonArray("pages");
+        if (pageNames != null) {
+            log.debug("{} pages changed by '{}', drop them from cache", pageNames.size(), event.body().getString(ACTION));
+            pageNames.forEach(name -> {
+                pageCache.invalidate((String) name);
+                pageFetches.forget((String) name);
+            });
+            pageCache.invalidate(INDEX_CACHE_KEY);
+            return;
+        }
+        String pageName = event.body().getString("page");
+        log.debug("Page (page={}) changed by '{}', drop it from cache", pageName, event.body().getString(ACTION));
+        if (pageName == null) {
+            pageCache.invalidateAll();
+            return;
+        }
+        pageCache.invalidate(pageName);
+        pageFetches.forget(pageName);
+        if (!"save-page".equals(event.body().getString(ACTION))) {
+            pageCache.invalidate(INDEX_CACHE_KEY);
+        }
+    }
+
+    private void searchHandler(RoutingContext ctxt) {
+        String query = ctxt.request().getParam("q");
+        if (query == null || query.trim().isEmpty()) {
+            ctxt.response().setStatusCode(BAD_REQUEST.code()).end();
+            return;
+        }
+        Integer limit = parseInteger(ctxt.request().getParam("limit"));
+        log.debug("Handle search (q={}) http method", query);
+
+        SearchPages request = new SearchPages(query, limit == null ? 20 : limit);
+        admission.<SearchHits>send(request, res -> {
+            if (res.failed()) {
+                if (res.cause() instanceof ReplyException
+                    && ((ReplyException) res.cause()).failureCode() == DatabaseVerticle.ErrorCodes.SEARCH_UNAVAILABLE.ordinal()) {
+                    ctxt.response().setStatusCode(SERVICE_UNAVAILABLE.code()).end();
+                } else {
+                    ctxt.fail(res.cause());
+                }
+                return;
+            }
+            SearchHits hits = res.result().body();
+            JsonArray results = new JsonArray();
+            for (int i = 0; i < hits.getNames().size(); i++) {
+                results.add(new JsonObject()
+                    .put("name", hits.getNames().get(i))
+                    .put("score", hits.getScore(i)));
+            }
+            ctxt.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .end(new JsonObject().put("query", query).put("hits", results).encode());
+        });
+    }
+
+    private void revisionListHandler(RoutingContext ctxt) {
+        String pageName = ctxt.request().getParam("page");
+        ListRevisions request = new ListRevisions(pageName);
+        admission.<RevisionList>send(request, res -> {
+            if (res.failed()) {
+                ctxt.fail(res.cause());
+                return;
+            }
+            RevisionList revisions = res.result().body();
+            JsonArray results = new JsonArray();
+            for (int i = 0; i < revisions.size(); i++) {
+                results.add(new JsonObject()
+                    .put("revision", revisions.getRevision(i))
+                    .put("modified", revisions.getModified(i))
+                    .put("length", revisions.getContentLength(i)));
             }
+            ctxt.response()
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .end(new JsonObject().put("page", pageName).put("revisions", results).encode());
         });
     }
 
+    /**
+     * Markdown of one revision.
+     */
+    private void revisionHandler(RoutingContext ctxt) {
+        Integer revision = parseInteger(ctxt.request().getParam("revision"));
+        if (revision == null || revision < 1) {
+            ctxt.response().setStatusCode(BAD_REQUEST.code()).end();
+            return;
+        }
+        fetchRevision(ctxt.request().getParam("page"), revision).setHandler(res -> {
+            if (res.failed()) {
+                ctxt.fail(res.cause());
+            } else if (!res.result().isFound()) {
+                ctxt.response().setStatusCode(NOT_FOUND.code()).end();
+            } else {
+                ctxt.response()
+                    .putHeader(HttpHeaders.CONTENT_TYPE, "text/plain; charset=utf-8")
+                    .end(res.result().getContent());
+            }
+        });
+    }
+
+    /**
+     * Unified diff between two revisions: 'to' defaults to the latest revision, 'from' to the one before 'to'.
+     */
+    private void diffHandler(RoutingContext ctxt) {
+        String pageName = ctxt.request().getParam("page");
+        String fromParam = ctxt.request().getParam("from");
+        String toParam = ctxt.request().getParam("to");
+        Integer from = parseInteger(fromParam);
+        Integer to = parseInteger(toParam);
+        if ((fromParam != null && (from == null || from < 1)) || (toParam != null && (to == null || to < 1))) {
+            ctxt.response().setStatusCode(BAD_REQUEST.code()).end();
+            return;
+        }
+        fetchRevision(pageName, to == null ? -1 : to).setHandler(toRes -> {
+            if (toRes.failed()) {
+                ctxt.fail(toRes.cause());
+                return;
+            }
+            PageRevision newer = toRes.result();
+            if (!newer.isFound()) {
+                ctxt.response().setStatusCode(NOT_FOUND.code()).end();
+                return;
+            }
+            int fromRevision = from == null ? newer.getRevision() - 1 : from;
+            Future<PageRevision> older = fromRevision < 1
+                ? Future.succeededFuture(PageRevision.EMPTY)
+                : fetchRevision(pageName, fromRevision);
+            older.setHandler(fromRes -> {
+                if (fromRes.failed()) {
+                    ctxt.fail(fromRes.cause());
+                    return;
+                }
+                if (!fromRes.result().isFound()) {
+                    ctxt.response().setStatusCode(NOT_FOUND.code()).end();
+                    return;
+                }
+                vertx.<String>executeBlocking(
+                    f -> f.complete(PageDelta.diff(fromRes.result().getContent(), newer.getContent())),
+                    false, diffRes -> {
+                        if (diffRes.failed()) {
+                            ctxt.fail(diffRes.cause());
+                            return;
+                        }
+                        ctxt.response()
+                            .putHeader(HttpHeaders.CONTENT_TYPE, "text/x-diff; charset=utf-8")
+                            .end("--- " + pageName + "@" + fromRevision + "\n"
+                                + "+++ " + pageName + "@" + newer.getRevision() + "\n"
+                                + diffRes.result());
+                    });
+            });
+        });
+    }
+
+    private Future<PageRevision> fetchRevision(String pageName, int revision) {
+        Future<PageRevision> future = Future.future();
+        GetRevision request = new GetRevision(pageName, revision);
+        admission.<PageRevision>send(request, res -> {
+            if (res.failed()) {
+                future.fail(res.cause());
+            } else {
+                future.complete(res.result().body());
+            }
+        });
+        return future;
+    }
+
+    private void renderStatsHandler(RoutingContext ctxt) {
+        ctxt.response()
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(renderer.stats().encode());
+    }
+
+    /**
+     * 503 until every verticle of the node is deployed and the warm-up ran, for load balancers and redeploys.
+     */
+    private void readinessHandler(RoutingContext ctxt) {
+        ctxt.response()
+            .setStatusCode(Startup.isReady() ? 200 : SERVICE_UNAVAILABLE.code())
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(Startup.stats().encode());
+    }
+
+    private void admissionStatsHandler(RoutingContext ctxt) {
+        ctxt.response()
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(admission.stats().encode());
+    }
+
+    /**
+     * Requests shed by admission control, or timed out waiting for the database, get a 503 the client may
+     * retry later. Any other failure goes to the default error handling.
+     */
+    private void overloadHandler(RoutingContext ctxt) {
+        Throwable failure = ctxt.failure();
+        boolean overloaded = failure instanceof OverloadedException || AdmissionControl.isTimeout(failure);
+        if (!overloaded || ctxt.response().headWritten()) {
+            ctxt.next();
+            return;
+        }
+        int retryAfter = failure instanceof OverloadedException
+            ? ((OverloadedException) failure).getRetryAfterSeconds()
+            : admission.retryAfterSeconds();
+        ctxt.response()
+            .setStatusCode(503)
+            .putHeader("Retry-After", String.valueOf(retryAfter))
+            .end("Service Unavailable");
+    }
+
+    private void cacheStatsHandler(RoutingContext ctxt) {
+        ctxt.response()
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(pageCache.stats()
+                .put("pageFetches", pageFetches.calls())
+                .put("pageFetchesJoined", pageFetches.joined())
+                .put("pageRenders", pageRenders.calls())
+                .put("pageRendersJoined", pageRenders.joined())
+                .encode());
+    }
+
     private void indexHandler(RoutingContext ctxt) {
-        DeliveryOptions deliveryOptions = new DeliveryOptions().addHeader(ACTION, "all-pages");
+        String after = ctxt.request().getParam("after");
+        boolean firstPage = after == null || after.isEmpty();
 
-        log.debug("Handle index page http method");
+        RenderedPage cached = firstPage ? pageCache.get(INDEX_CACHE_KEY) : null;
+        if (cached != null) {
+            log.debug("Serve index page from cache");
+            respond(ctxt, cached);
+            return;
+        }
+        long cacheGeneration = pageCache.generation();
 
-        vertx.eventBus().send(wikiDbQueue, null, deliveryOptions, msgRes -> {
+        ListPages request = new ListPages(firstPage ? null : after, indexPageSize);
+
+        log.debug("Handle index page (after={}) http method", after);
+
+        admission.<PageList>send(request, msgRes -> {
             if (msgRes.failed()) {
                 ctxt.fail(msgRes.cause());
             } else {
-                JsonObject body = ((JsonObject) msgRes.result().body());
+                PageList body = msgRes.result().body();
+                List<String> pages = body.getNames();
+                String etag = ConditionalGet.listEtag(pages, body.getNext());
+
+                if (endIfNotModified(ctxt, etag, 0)) {
+                    return;
+                }
+
                 ctxt.put("title", "Wiki home")
-                    .put("pages", body.getJsonArray("pages").getList());
-                freemarker.render(ctxt, "templates", "/index.ftl", rendRes -> {
-                    if (rendRes.failed()) {
-                        ctxt.fail(rendRes.cause());
-                    } else {
-                        ctxt.response()
-                            .putHeader(HttpHeaders.CONTENT_TYPE, "text/html")
-                            .end(rendRes.result());
-                    }
-                });
+                    .put("pages", pages)
+                    .put("nextPage", body.getNext())
+                    .put("firstPage", firstPage);
+                renderer.render(ctxt, "/index.ftl", null)
+                    .compose(buffer -> renderer.prepare(buffer, etag, 0, firstPage))
+                    .setHandler(rendRes -> {
+                        if (rendRes.failed()) {
+                            renderFailed(ctxt, rendRes.cause());
+                        } else {
+                            RenderedPage index = rendRes.result();
+                            if (firstPage) {
+                                pageCache.put(INDEX_CACHE_KEY, index, cacheGeneration);
+                            }
+                            respond(ctxt, index);
+                        }
+                    });
+            }
+        });
+    }
+
+    /**
+     * Streams every page name as a json array. Names are fetched chunk by chunk with the keyset cursor
+     * and the next chunk is requested only once the previous one is written out, so memory stays bounded
+     * by the chunk size whatever the size of the wiki.
+     */
+    private void pageListStreamHandler(RoutingContext ctxt) {
+        log.debug("Handle page list stream http method");
+        HttpServerResponse resp = ctxt.response()
+            .setChunked(true)
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json");
+        resp.write("[");
+        streamPageNames(resp, null);
+    }
+
+    private void streamPageNames(HttpServerResponse resp, String after) {
+        ListPages request = new ListPages(after, PAGE_LIST_CHUNK_SIZE);
+        admission.<PageList>send(request, msgRes -> {
+            if (resp.closed()) {
+                return;
+            }
+            if (msgRes.failed()) {
+                log.error("Cant stream page list", msgRes.cause());
+                resp.close();
+                return;
+            }
+            PageList body = msgRes.result().body();
+            List<String> names = body.getNames();
+            Buffer chunk = Buffer.buffer();
+            for (int i = 0; i < names.size(); i++) {
+                if (after != null || i > 0) {
+                    chunk.appendString(",");
+                }
+                chunk.appendString(Json.encode(names.get(i)));
+            }
+            // an empty chunk would reach the http server's compressor as content it cannot encode
+            if (chunk.length() > 0) {
+                resp.write(chunk);
+            }
+
+            String next = body.getNext();
+            if (next == null) {
+                resp.end("]");
+            } else if (resp.writeQueueFull()) {
+                resp.drainHandler(v -> streamPageNames(resp, next));
+            } else {
+                streamPageNames(resp, next);
             }
         });
     }
@@ -0,0 +1,54 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Batch of pages to create or overwrite by name, {@code names} and {@code contents} are parallel lists.
+ * Replied with an empty body once the batch is committed.
+ */
+public class ImportPages implements WikiMessage {
+
+    private final List<String> names;
+    private final List<String> contents;
+
+    public ImportPages(List<String> names, List<String> contents) {
+        this.names = Collections.unmodifiableList(names);
+        this.contents = Collections.unmodifiableList(contents);
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<String> getContents() {
+        return contents;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            WireReader.writeString(buffer, names.get(i));
+            WireReader.writeString(buffer, contents.get(i));
+        }
+    }
+
+    static ImportPages readFrom(WireReader reader) {
+        int size = reader.readInt();
+        List<String> names = new ArrayList<>(size);
+        List<String> contents = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(reader.readString());
+            contents.add(reader.readString());
+        }
+        return new ImportPages(names, contents);
+    }
+}
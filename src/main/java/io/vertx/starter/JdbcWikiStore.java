@@ -0,0 +1,604 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.jdbc.JDBCClient;
+import io.vertx.ext.sql.ResultSet;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.SQLOptions;
+import io.vertx.ext.sql.UpdateResult;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * {@link WikiStore} on a JDBC database through the shared vert.x JDBC client, HSQLDB by default.
+ * SQL comes from 'sql-queries.properties'.
+ */
+public class JdbcWikiStore implements WikiStore {
+    Logger log = LoggerFactory.getLogger(JdbcWikiStore.class);
+
+    public static final String CONFIG_WIKIDB_URL = "wikidb.url";
+
+    private static final String CONFIG_WIKIDB_SQL_QUERIES_RES_FILE = "wikidb.sql-queries";
+    private static final String CONFIG_WIKIDB_SQL_QUERIES_RES_FILE_DEFAULT = "/sql-queries.properties";
+    private static final String CONFIG_WIKIDB_HTML_BACKFILL_BATCH = "wikidb.html-backfill.batch-size";
+    public static final String CONFIG_WIKIDB_POOL_PROVIDER = "wikidb.pool.provider";
+    public static final String CONFIG_WIKIDB_POOL_MAX_SIZE = "wikidb.pool.max-size";
+    public static final String CONFIG_WIKIDB_POOL_MIN_SIZE = "wikidb.pool.min-size";
+    public static final String CONFIG_WIKIDB_STATEMENT_CACHE_SIZE = "wikidb.statement-cache.size";
+    public static final String CONFIG_WIKIDB_FETCH_SIZE = "wikidb.fetch-size";
+
+    private final Vertx vertx;
+    private final JsonObject config;
+
+    private final Map<SqlQueries, String> sqls = new EnumMap<>(SqlQueries.class);
+
+    private JDBCClient dbClient;
+
+    private int htmlBackfillBatchSize;
+
+    private SQLOptions sqlOptions;
+
+    public JdbcWikiStore(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.config = config;
+    }
+
+    @Override
+    public Future<Void> open() {
+        Future<Void> opened;
+        try {
+            opened = loadSql().compose(v -> prepareDb());
+        } catch (IOException e) {
+            opened = Future.failedFuture(e);
+        }
+        return opened.map(v -> {
+            backfillHtml();
+            return null;
+        });
+    }
+
+    @Override
+    public void close() {
+        if (dbClient != null) {
+            dbClient.close();
+        }
+    }
+
+    private Future<Void> loadSql() throws IOException {
+        Future<Void> future = Future.future();
+        String resourcePath = config.getString(CONFIG_WIKIDB_SQL_QUERIES_RES_FILE);
+        try (InputStream is = resourcePath == null?
+            getClass().getResourceAsStream(CONFIG_WIKIDB_SQL_QUERIES_RES_FILE_DEFAULT):
+            new FileInputStream(resourcePath)) {
+
+            Properties sqlProps = new Properties();
+            sqlProps.load(is);
+
+            sqls.put(SqlQueries.SQL_CREATE_PAGES_TABLE, sqlProps.getProperty("create-pages-table"));
+            sqls.put(SqlQueries.SQL_ADD_VERSION_COLUMN, sqlProps.getProperty("add-version-column"));
+            sqls.put(SqlQueries.SQL_ADD_MODIFIED_COLUMN, sqlProps.getProperty("add-modified-column"));
+            sqls.put(SqlQueries.SQL_ADD_HTML_COLUMN, sqlProps.getProperty("add-html-column"));
+            sqls.put(SqlQueries.SQL_PAGES_WITHOUT_HTML, sqlProps.getProperty("pages-without-html"));
+            sqls.put(SqlQueries.SQL_BACKFILL_HTML, sqlProps.getProperty("backfill-html"));
+            sqls.put(SqlQueries.SQL_CREATE_PAGE, sqlProps.getProperty("create-page"));
+            sqls.put(SqlQueries.SQL_ALL_PAGES, sqlProps.getProperty("all-pages"));
+            sqls.put(SqlQueries.SQL_ALL_PAGES_AFTER, sqlProps.getProperty("all-pages-after"));
+            sqls.put(SqlQueries.SQL_ALL_PAGES_CONTENT, sqlProps.getProperty("all-pages-content"));
+            sqls.put(SqlQueries.SQL_ALL_PAGES_CONTENT_AFTER, sqlProps.getProperty("all-pages-content-after"));
+            sqls.put(SqlQueries.SQL_IMPORT_PAGE, sqlProps.getProperty("import-page"));
+            sqls.put(SqlQueries.SQL_INDEX_PAGES, sqlProps.getProperty("index-pages"));
+            sqls.put(SqlQueries.SQL_INDEX_PAGES_AFTER, sqlProps.getProperty("index-pages-after"));
+            sqls.put(SqlQueries.SQL_GET_PAGE, sqlProps.getProperty("get-page"));
+            sqls.put(SqlQueries.SQL_DELETE_PAGE, sqlProps.getProperty("delete-page"));
+            sqls.put(SqlQueries.SQL_PAGE_NAME, sqlProps.getProperty("page-name"));
+            sqls.put(SqlQueries.SQL_PAGES_BY_IDS, sqlProps.getProperty("pages-by-ids"));
+            sqls.put(SqlQueries.SQL_PAGES_BY_NAMES, sqlProps.getProperty("pages-by-names"));
+            sqls.put(SqlQueries.SQL_SAVE_PAGE, sqlProps.getProperty("save-page"));
+            sqls.put(SqlQueries.SQL_CREATE_REVISIONS_TABLE, sqlProps.getProperty("create-revisions-table"));
+            sqls.put(SqlQueries.SQL_ADD_REVISION, sqlProps.getProperty("add-revision"));
+            sqls.put(SqlQueries.SQL_LIST_REVISIONS, sqlProps.getProperty("list-revisions"));
+            sqls.put(SqlQueries.SQL_REVISION_CHAIN, sqlProps.getProperty("revision-chain"));
+            future.complete();
+        } catch (IOException ioe) {
+            future.fail(ioe);
+        }
+        return future;
+    }
+
+    private Future<Void> prepareDb() {
+        Future<Void> future = Future.future();
+        htmlBackfillBatchSize = config.getInteger(CONFIG_WIKIDB_HTML_BACKFILL_BATCH, 100);
+
+        sqlOptions = new SQLOptions().setFetchSize(config.getInteger(CONFIG_WIKIDB_FETCH_SIZE, 500));
+
+        JsonObject poolConfig;
+        try {
+            poolConfig = poolConfig();
+        } catch (IllegalArgumentException e) {
+            return Future.failedFuture(e);
+        }
+        dbClient = JDBCClient.createShared(vertx, poolConfig);
+        if ("c3p0".equals(config.getString(CONFIG_WIKIDB_POOL_PROVIDER, "c3p0"))) {
+            WikiMetrics.registerPoolGauges();
+        }
+
+        getConnection(res -> {
+            if (res.failed()) {
+                log.error("Cannot connect to database", res.cause());
+                future.fail(res.cause());
+            } else {
+                SQLConnection sqlConnection = res.result();
+                sqlConnection.execute(sqls.get(SqlQueries.SQL_CREATE_PAGES_TABLE), sqlRes -> {
+                    if (sqlRes.failed()) {
+                        sqlConnection.close();
+                        log.error("Cannot create table in db", sqlRes.cause());
+                        future.fail(sqlRes.cause());
+                    } else {
+                        addColumnIfMissing(sqlConnection, SqlQueries.SQL_ADD_VERSION_COLUMN)
+                            .compose(v -> addColumnIfMissing(sqlConnection, SqlQueries.SQL_ADD_MODIFIED_COLUMN))
+                            .compose(v -> addColumnIfMissing(sqlConnection, SqlQueries.SQL_ADD_HTML_COLUMN))
+                            .setHandler(v -> sqlConnection.execute(sqls.get(SqlQueries.SQL_CREATE_REVISIONS_TABLE), revRes -> {
+                                sqlConnection.close();
+                                if (revRes.failed()) {
+                                    log.error("Cannot create revisions table in db", revRes.cause());
+                                    future.fail(revRes.cause());
+                                } else {
+                                    future.complete();
+                                }
+                            }));
+                    }
+                });
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Settings of the connection pool the JDBC client creates. c3p0 caches prepared statements per connection,
+     * so the handful of queries of this store are parsed once per connection instead of once per call.
+     * HikariCP leaves statement caching to the driver and publishes its own pool meters.
+     */
+    private JsonObject poolConfig() {
+        String url = config.getString(CONFIG_WIKIDB_URL, "jdbc:hsqldb:file:db/wiki");
+        int maxSize = config.getInteger(CONFIG_WIKIDB_POOL_MAX_SIZE, 30);
+        int minSize = config.getInteger(CONFIG_WIKIDB_POOL_MIN_SIZE, 3);
+        String provider = config.getString(CONFIG_WIKIDB_POOL_PROVIDER, "c3p0");
+        switch (provider) {
+            case "c3p0":
+                return new JsonObject()
+                    .put("url", url)
+                    .put("driver_class", "org.hsqldb.jdbcDriver")
+                    .put("max_pool_size", maxSize)
+                    .put("min_pool_size", minSize)
+                    .put("initial_pool_size", minSize)
+                    .put("max_statements_per_connection", config.getInteger(CONFIG_WIKIDB_STATEMENT_CACHE_SIZE, 50));
+            case "hikari":
+                if (config.containsKey(CONFIG_WIKIDB_STATEMENT_CACHE_SIZE)) {
+                    log.warn("'{}' is ignored with the hikari pool, statement caching is left to the driver",
+                        CONFIG_WIKIDB_STATEMENT_CACHE_SIZE);
+                }
+                return new JsonObject()
+                    .put("provider_class", MeteredHikariDataSourceProvider.class.getName())
+                    .put("poolName", "wikidb")
+                    .put("jdbcUrl", url)
+                    .put("driverClassName", "org.hsqldb.jdbcDriver")
+                    .put("maximumPoolSize", maxSize)
+                    .put("minimumIdle", minSize);
+            default:
+                throw new IllegalArgumentException("Unknown '" + CONFIG_WIKIDB_POOL_PROVIDER + "': " + provider);
+        }
+    }
+
+    /**
+     * Upgrade tables created before the column existed. HSQLDB has no 'add column if not exists',
+     * so failure here just means the table is already up to date.
+     */
+    private Future<Void> addColumnIfMissing(SQLConnection conn, SqlQueries query) {
+        Future<Void> future = Future.future();
+        conn.execute(sqls.get(query), res -> {
+            if (res.failed()) {
+                log.debug("Column not added ({}), table is up to date", res.cause().getMessage());
+            }
+            future.complete();
+        });
+        return future;
+    }
+
+    /**
+     * Checks a connection out of the pool, recording how long the caller waited for it,
+     * and sets the fetch size of its queries.
+     */
+    private void getConnection(Handler<AsyncResult<SQLConnection>> handler) {
+        long requested = System.nanoTime();
+        dbClient.getConnection(res -> {
+            WikiMetrics.recordPoolWait(System.nanoTime() - requested);
+            if (res.succeeded()) {
+                res.result().setOptions(sqlOptions);
+            }
+            handler.handle(res);
+        });
+    }
+
+    /**
+     * One query on a pooled connection, given back as soon as the rows are read.
+     */
+    private Future<ResultSet> query(String sql, JsonArray params) {
+        Future<ResultSet> future = Future.future();
+        getConnection(connRes -> {
+            if (connRes.failed()) {
+                future.fail(connRes.cause());
+                return;
+            }
+            SQLConnection conn = connRes.result();
+            conn.queryWithParams(sql, params, sqlRes -> {
+                conn.close();
+                future.handle(sqlRes);
+            });
+        });
+        return future;
+    }
+
+    /**
+     * One update on a pooled connection.
+     */
+    private Future<UpdateResult> runUpdate(String sql, JsonArray params) {
+        Future<UpdateResult> future = Future.future();
+        getConnection(connRes -> {
+            if (connRes.failed()) {
+                future.fail(connRes.cause());
+                return;
+            }
+            SQLConnection conn = connRes.result();
+            conn.updateWithParams(sql, params, sqlRes -> {
+                conn.close();
+                future.handle(sqlRes);
+            });
+        });
+        return future;
+    }
+
+    @Override
+    public Future<PageResult> get(String name) {
+        return query(sqls.get(SqlQueries.SQL_GET_PAGE), new JsonArray().add(name)).map(resSet -> {
+            if (resSet.getNumRows() == 0) {
+                return PageResult.NOT_FOUND;
+            }
+            JsonArray row = resSet.getResults().get(0);
+            return new PageResult(true, row.getInteger(0), row.getString(1), row.getString(4),
+                row.getInteger(2), row.getLong(3));
+        });
+    }
+
+    @Override
+    public Future<Void> create(PageRecord page) {
+        JsonArray params = new JsonArray()
+            .add(page.getName())
+            .add(page.getContent())
+            .add(page.getHtml())
+            .add(page.getModified());
+        return runUpdate(sqls.get(SqlQueries.SQL_CREATE_PAGE), params).map(res -> null);
+    }
+
+    /**
+     * All pages are written with one JDBC batch in one transaction.
+     */
+    @Override
+    public Future<List<PageRecord>> update(List<PageRecord> pages) {
+        if (pages.isEmpty()) {
+            return Future.succeededFuture(new ArrayList<>());
+        }
+        List<JsonArray> params = pages.stream()
+            .map(page -> new JsonArray()
+                .add(page.getContent())
+                .add(page.getHtml())
+                .add(page.getModified())
+                .add(page.getId()))
+            .collect(toList());
+        return inTransaction(conn -> batch(conn, sqls.get(SqlQueries.SQL_SAVE_PAGE), params)
+            .compose(counts -> storedPages(conn, pages)));
+    }
+
+    /**
+     * The pages just written by id, with the name and version they have in the table. Missing ids are left out.
+     */
+    private Future<List<PageRecord>> storedPages(SQLConnection conn, List<PageRecord> pages) {
+        JsonArray ids = new JsonArray();
+        pages.forEach(page -> ids.add(page.getId()));
+        String sql = String.format(sqls.get(SqlQueries.SQL_PAGES_BY_IDS),
+            String.join(", ", Collections.nCopies(ids.size(), "?")));
+        Future<ResultSet> rows = Future.future();
+        conn.queryWithParams(sql, ids, rows.completer());
+        return rows.map(resSet -> {
+            Map<Integer, JsonArray> byId = new HashMap<>();
+            resSet.getResults().forEach(row -> byId.put(row.getInteger(0), row));
+            List<PageRecord> written = new ArrayList<>(pages.size());
+            for (PageRecord page : pages) {
+                JsonArray row = byId.get(page.getId());
+                if (row != null) {
+                    written.add(new PageRecord(page.getId(), row.getString(1), page.getContent(), page.getHtml(),
+                        row.getInteger(2), page.getModified()));
+                }
+            }
+            return written;
+        });
+    }
+
+    /**
+     * All pages are merged with one JDBC batch in one transaction.
+     */
+    @Override
+    public Future<List<PageRecord>> put(List<PageRecord> pages) {
+        if (pages.isEmpty()) {
+            return Future.succeededFuture(new ArrayList<>());
+        }
+        List<JsonArray> params = pages.stream()
+            .map(page -> new JsonArray()
+                .add(page.getName())
+                .add(page.getContent())
+                .add(page.getHtml())
+                .add(page.getModified()))
+            .collect(toList());
+        return inTransaction(conn -> batch(conn, sqls.get(SqlQueries.SQL_IMPORT_PAGE), params)
+            .compose(counts -> namedPages(conn, pages)));
+    }
+
+    /**
+     * The pages just written by name, with the id and version they have in the table.
+     */
+    private Future<List<PageRecord>> namedPages(SQLConnection conn, List<PageRecord> pages) {
+        JsonArray names = new JsonArray();
+        pages.forEach(page -> names.add(page.getName()));
+        String sql = String.format(sqls.get(SqlQueries.SQL_PAGES_BY_NAMES),
+            String.join(", ", Collections.nCopies(names.size(), "?")));
+        Future<ResultSet> rows = Future.future();
+        conn.queryWithParams(sql, names, rows.completer());
+        return rows.map(resSet -> {
+            Map<String, JsonArray> byName = new HashMap<>();
+            resSet.getResults().forEach(row -> byName.put(row.getString(1), row));
+            List<PageRecord> written = new ArrayList<>(pages.size());
+            for (PageRecord page : pages) {
+                JsonArray row = byName.get(page.getName());
+                if (row != null) {
+                    written.add(new PageRecord(row.getInteger(0), page.getName(), page.getContent(), page.getHtml(),
+                        row.getInteger(2), page.getModified()));
+                }
+            }
+            return written;
+        });
+    }
+
+    @Override
+    public Future<String> delete(int id) {
+        JsonArray params = new JsonArray().add(id);
+        return inTransaction(conn -> {
+            Future<ResultSet> named = Future.future();
+            conn.queryWithParams(sqls.get(SqlQueries.SQL_PAGE_NAME), params, named.completer());
+            return named.compose(resSet -> {
+                if (resSet.getResults().isEmpty()) {
+                    return Future.<String>succeededFuture();
+                }
+                String name = resSet.getResults().get(0).getString(0);
+                Future<UpdateResult> deleted = Future.future();
+                conn.updateWithParams(sqls.get(SqlQueries.SQL_DELETE_PAGE), params, deleted.completer());
+                return deleted.map(res -> res.getUpdated() == 1 ? name : null);
+            });
+        });
+    }
+
+    /**
+     * Keyset pagination over the unique index on Name.
+     */
+    @Override
+    public Future<PageList> list(String after, int limit, boolean withContent) {
+        String sql;
+        if (withContent) {
+            sql = after == null ? sqls.get(SqlQueries.SQL_ALL_PAGES_CONTENT) : sqls.get(SqlQueries.SQL_ALL_PAGES_CONTENT_AFTER);
+        } else {
+            sql = after == null ? sqls.get(SqlQueries.SQL_ALL_PAGES) : sqls.get(SqlQueries.SQL_ALL_PAGES_AFTER);
+        }
+        JsonArray params = after == null ? new JsonArray().add(limit) : new JsonArray().add(after).add(limit);
+
+        return query(sql, params).map(resSet -> {
+            List<JsonArray> rows = resSet.getResults();
+            List<String> pageNames = rows.stream()
+                .map(jsonArr -> jsonArr.getString(0))
+                .collect(toList());
+            List<String> contents = withContent
+                ? rows.stream().map(jsonArr -> jsonArr.getString(1)).collect(toList())
+                : null;
+            String next = pageNames.size() == limit ? pageNames.get(limit - 1) : null;
+            return new PageList(pageNames, contents, next);
+        });
+    }
+
+    @Override
+    public Future<List<PageRecord>> scan(int afterId, int limit) {
+        String sql = afterId < 0 ? sqls.get(SqlQueries.SQL_INDEX_PAGES) : sqls.get(SqlQueries.SQL_INDEX_PAGES_AFTER);
+        JsonArray params = afterId < 0
+            ? new JsonArray().add(limit)
+            : new JsonArray().add(afterId).add(limit);
+
+        return query(sql, params).map(resSet -> resSet.getResults().stream()
+            .map(row -> new PageRecord(row.getInteger(0), row.getString(1), row.getString(2), null, row.getInteger(3), 0))
+            .collect(toList()));
+    }
+
+    @Override
+    public Future<List<RevisionRecord>> revisions(String name) {
+        return query(sqls.get(SqlQueries.SQL_LIST_REVISIONS), new JsonArray().add(name)).map(resSet -> resSet.getResults().stream()
+            .map(row -> new RevisionRecord(name, row.getInteger(0), row.getBoolean(1), row.getLong(2),
+                row.getInteger(3), null))
+            .collect(toList()));
+    }
+
+    /**
+     * Revision data is kept base64 encoded in a clob.
+     */
+    @Override
+    public Future<List<RevisionRecord>> revisionChain(String name, int revision) {
+        int upTo = revision < 0 ? Integer.MAX_VALUE : revision;
+        JsonArray params = new JsonArray().add(name).add(upTo).add(name).add(upTo);
+        return query(sqls.get(SqlQueries.SQL_REVISION_CHAIN), params).map(resSet -> resSet.getResults().stream()
+            .map(row -> new RevisionRecord(name, row.getInteger(0), row.getBoolean(1), row.getLong(2),
+                row.getInteger(3), Base64.getDecoder().decode(row.getString(4))))
+            .collect(toList()));
+    }
+
+    @Override
+    public Future<Void> addRevision(RevisionRecord revision) {
+        JsonArray params = new JsonArray()
+            .add(revision.getName())
+            .add(revision.getRevision())
+            .add(revision.isSnapshot())
+            .add(revision.getModified())
+            .add(revision.getContentLength())
+            .add(Base64.getEncoder().encodeToString(revision.getData()));
+        return runUpdate(sqls.get(SqlQueries.SQL_ADD_REVISION), params).map(res -> null);
+    }
+
+    private static Future<List<Integer>> batch(SQLConnection conn, String sql, List<JsonArray> params) {
+        Future<List<Integer>> future = Future.future();
+        conn.batchWithParams(sql, params, future.completer());
+        return future;
+    }
+
+    /**
+     * Run the statements of {@code work} on one connection in one transaction, rolled back when it fails.
+     */
+    private <T> Future<T> inTransaction(Function<SQLConnection, Future<T>> work) {
+        Future<T> future = Future.future();
+        getConnection(connRes -> {
+            if (connRes.failed()) {
+                future.fail(connRes.cause());
+                return;
+            }
+            SQLConnection conn = connRes.result();
+            conn.setAutoCommit(false, txRes -> {
+                if (txRes.failed()) {
+                    conn.close();
+                    future.fail(txRes.cause());
+                    return;
+                }
+                work.apply(conn).setHandler(workRes -> {
+                    if (workRes.failed()) {
+                        conn.rollback(rb -> endTransaction(conn, future, workRes.cause(), null));
+                    } else {
+                        conn.commit(commitRes -> endTransaction(conn, future,
+                            commitRes.failed() ? commitRes.cause() : null, workRes.result()));
+                    }
+                });
+            });
+        });
+        return future;
+    }
+
+    /**
+     * Restore auto-commit before the connection goes back to the pool.
+     */
+    private <T> void endTransaction(SQLConnection conn, Future<T> future, Throwable failure, T result) {
+        conn.setAutoCommit(true, v -> {
+            conn.close();
+            if (failure == null) {
+                future.complete(result);
+            } else {
+                future.fail(failure);
+            }
+        });
+    }
+
+    /**
+     * Render html for pages stored before the Html column existed, one batch at a time,
+     * until no such page is left. The Version guard skips pages saved in the meantime.
+     */
+    private void backfillHtml() {
+        if (htmlBackfillBatchSize <= 0) {
+            return;
+        }
+        query(sqls.get(SqlQueries.SQL_PAGES_WITHOUT_HTML), new JsonArray().add(htmlBackfillBatchSize)).setHandler(queryRes -> {
+            if (queryRes.failed()) {
+                log.error("Html backfill query failed", queryRes.cause());
+                return;
+            }
+            List<JsonArray> rows = queryRes.result().getResults();
+            if (rows.isEmpty()) {
+                log.debug("Html backfill is done");
+                return;
+            }
+            vertx.<List<JsonArray>>executeBlocking(f -> f.complete(rows.stream()
+                .map(row -> new JsonArray()
+                    .add(Processor.process(row.getString(1) == null ? "" : row.getString(1)))
+                    .add(row.getInteger(0))
+                    .add(row.getInteger(2)))
+                .collect(toList())), false, renderRes -> {
+                if (renderRes.failed()) {
+                    log.error("Html backfill render failed", renderRes.cause());
+                    return;
+                }
+                getConnection(connRes -> {
+                    if (connRes.failed()) {
+                        log.error("Html backfill cant get connection", connRes.cause());
+                        return;
+                    }
+                    SQLConnection conn = connRes.result();
+                    conn.batchWithParams(sqls.get(SqlQueries.SQL_BACKFILL_HTML), renderRes.result(), batchRes -> {
+                        conn.close();
+                        if (batchRes.failed()) {
+                            log.error("Html backfill update failed", batchRes.cause());
+                        } else {
+                            log.debug("Html backfilled for {} pages", rows.size());
+                            backfillHtml();
+                        }
+                    });
+                });
+            });
+        });
+    }
+
+    enum SqlQueries {
+        SQL_CREATE_PAGES_TABLE,
+        SQL_ADD_VERSION_COLUMN,
+        SQL_ADD_MODIFIED_COLUMN,
+        SQL_ADD_HTML_COLUMN,
+        SQL_PAGES_WITHOUT_HTML,
+        SQL_BACKFILL_HTML,
+        SQL_GET_PAGE,
+        SQL_CREATE_PAGE,
+        SQL_SAVE_PAGE,
+        SQL_ALL_PAGES,
+        SQL_ALL_PAGES_AFTER,
+        SQL_ALL_PAGES_CONTENT,
+        SQL_ALL_PAGES_CONTENT_AFTER,
+        SQL_IMPORT_PAGE,
+        SQL_INDEX_PAGES,
+        SQL_INDEX_PAGES_AFTER,
+        SQL_DELETE_PAGE,
+        SQL_PAGE_NAME,
+        SQL_PAGES_BY_IDS,
+        SQL_PAGES_BY_NAMES,
+        SQL_CREATE_REVISIONS_TABLE,
+        SQL_ADD_REVISION,
+        SQL_LIST_REVISIONS,
+        SQL_REVISION_CHAIN
+    }
+}
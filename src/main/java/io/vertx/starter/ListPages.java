@@ -0,0 +1,47 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * List at most {@code limit} page names following {@code after} (null for the first page), replied with {@link PageList}.
+ * With {@code withContent} the raw content of every listed page is replied as well.
+ */
+public class ListPages implements WikiMessage {
+
+    private final String after;
+    private final int limit;
+    private final boolean withContent;
+
+    public ListPages(String after, int limit) {
+        this(after, limit, false);
+    }
+
+    public ListPages(String after, int limit, boolean withContent) {
+        this.after = after;
+        this.limit = limit;
+        this.withContent = withContent;
+    }
+
+    public String getAfter() {
+        return after;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean isWithContent() {
+        return withContent;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeString(buffer, after);
+        buffer.appendInt(limit);
+        WireReader.writeBoolean(buffer, withContent);
+    }
+
+    static ListPages readFrom(WireReader reader) {
+        return new ListPages(reader.readString(), reader.readInt(), reader.readBoolean());
+    }
+}
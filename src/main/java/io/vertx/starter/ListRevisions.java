@@ -0,0 +1,28 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * List the stored revisions of a page, replied with {@link RevisionList}.
+ */
+public class ListRevisions implements WikiMessage {
+
+    private final String name;
+
+    public ListRevisions(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeString(buffer, name);
+    }
+
+    static ListRevisions readFrom(WireReader reader) {
+        return new ListRevisions(reader.readString());
+    }
+}
@@ -0,0 +1,767 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded {@link WikiStore} without SQL: pages are appended to a log of memory-mapped segment files and
+ * found through an in-memory index of names and ids, rebuilt by replaying the log on open.
+ * <p>
+ * Reads decode straight from the mapped segment on the event loop, no worker thread is involved.
+ * Writes are appended on the event loop too; when 'wikidb.log.sync' is on, the futures complete only
+ * after the touched segments are forced to disk on a worker. A write is visible to reads as soon as it
+ * is appended.
+ * <p>
+ * Every overwrite or delete leaves a dead record behind. Sealed segments whose share of dead bytes reaches
+ * 'wikidb.log.compaction.min-garbage' are compacted: their live records are copied to the active segment
+ * a chunk at a time, the segments they went to are forced to disk whatever 'wikidb.log.sync' says, and the
+ * file is deleted.
+ * <p>
+ * Record layout: {@code int length | byte type | int id | int version | long modified | string name |
+ * string content | string html | int crc32}, strings as {@code int length} (-1 for null) and UTF-8 bytes.
+ * A record that is cut short or fails its checksum ends the replay of its segment.
+ * <p>
+ * Every segment starts with a header record holding, in the id field, the next page id when it was created.
+ * Compaction drops the records of deleted pages, the header of the newest segment keeps their ids from being
+ * given out again.
+ * <p>
+ * Page revisions share the log. Their records hold the revision number in the id and the content length
+ * in the version field, and {@code byte snapshot | int length | bytes data} in place of content and html.
+ * Every revision stays live, compaction only moves them.
+ * <p>
+ * The directory is locked, so only one store, i.e. one database verticle instance, may use it.
+ * Not thread safe, must be used from the owning verticle's context.
+ */
+public class LogWikiStore implements WikiStore {
+    Logger log = LoggerFactory.getLogger(LogWikiStore.class);
+
+    public static final String CONFIG_LOG_DIR = "wikidb.log.dir";
+    public static final String CONFIG_LOG_SEGMENT_BYTES = "wikidb.log.segment-bytes";
+    public static final String CONFIG_LOG_SYNC = "wikidb.log.sync";
+    public static final String CONFIG_LOG_COMPACTION_INTERVAL_MS = "wikidb.log.compaction.interval-ms";
+    public static final String CONFIG_LOG_COMPACTION_MIN_GARBAGE = "wikidb.log.compaction.min-garbage";
+
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d{8})\\.log");
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte REVISION = 3;
+    private static final byte HEADER = 4;
+    private static final int COMPACTION_CHUNK = 1000;
+
+    private final Vertx vertx;
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean sync;
+    private final long compactionIntervalMs;
+    private final double compactionMinGarbage;
+
+    private final TreeMap<String, Entry> byName = new TreeMap<>();
+    private final TreeMap<Integer, Entry> byId = new TreeMap<>();
+    private final Map<String, List<RevisionEntry>> revisions = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final List<Segment> dirty = new ArrayList<>();
+    private final List<Segment> compactionTargets = new ArrayList<>();
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private Segment active;
+    private int nextId;
+    private long compactionTimer = -1;
+    private boolean compacting;
+
+    public LogWikiStore(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.dir = Paths.get(config.getString(CONFIG_LOG_DIR, "db/wiki-log"));
+        this.segmentBytes = config.getInteger(CONFIG_LOG_SEGMENT_BYTES, 64 * 1024 * 1024);
+        this.sync = config.getBoolean(CONFIG_LOG_SYNC, true);
+        this.compactionIntervalMs = config.getLong(CONFIG_LOG_COMPACTION_INTERVAL_MS, 60000L);
+        this.compactionMinGarbage = config.getDouble(CONFIG_LOG_COMPACTION_MIN_GARBAGE, 0.5);
+    }
+
+    @Override
+    public Future<Void> open() {
+        Future<Void> future = Future.future();
+        vertx.<Void>executeBlocking(f -> {
+            try {
+                lockAndReplay();
+                f.complete();
+            } catch (IOException | RuntimeException e) {
+                f.fail(e);
+            }
+        }, false, res -> {
+            if (res.succeeded()) {
+                log.info("Opened page log {}: {} pages in {} segments", dir, byName.size(), segments.size());
+                if (compactionIntervalMs > 0) {
+                    compactionTimer = vertx.setPeriodic(compactionIntervalMs, t -> compact());
+                }
+            }
+            future.handle(res);
+        });
+        return future;
+    }
+
+    private void lockAndReplay() throws IOException {
+        Files.createDirectories(dir);
+        lockChannel = FileChannel.open(dir.resolve("LOCK"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Page log " + dir + " is used by another store");
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "segment-*.log")) {
+            for (Path file : files) {
+                Matcher m = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (m.matches()) {
+                    int number = Integer.parseInt(m.group(1));
+                    segments.put(number, Segment.open(number, file, 0));
+                }
+            }
+        }
+        for (Segment segment : segments.values()) {
+            replay(segment);
+        }
+        active = segments.isEmpty() ? newSegment(1, segmentBytes) : segments.lastEntry().getValue();
+    }
+
+    private void replay(Segment segment) {
+        ByteBuffer buf = segment.buffer.duplicate();
+        int pos = 0;
+        while (true) {
+            int length = recordLength(buf, pos);
+            if (length < 0) {
+                break;
+            }
+            buf.position(pos + 4);
+            byte type = buf.get();
+            int id = buf.getInt();
+            int version = buf.getInt();
+            long modified = buf.getLong();
+            if (type == HEADER) {
+                nextId = Math.max(nextId, id);
+                pos += length;
+                continue;
+            }
+            String name = readString(buf);
+            if (type == REVISION) {
+                boolean snapshot = buf.get() != 0;
+                indexRevision(name, new RevisionEntry(id, snapshot, modified, version, segment, pos, length));
+                pos += length;
+                continue;
+            }
+            if (type == PUT) {
+                index(new Entry(id, name, version, modified, segment, pos, length));
+            } else {
+                unindex(byName.get(name));
+            }
+            nextId = Math.max(nextId, id + 1);
+            pos += length;
+        }
+        segment.writePos = pos;
+        if (pos + 4 <= segment.buffer.capacity() && segment.buffer.getInt(pos) != 0) {
+            log.warn("Page log segment {} has a broken record at {}, ignoring the rest of it", segment.path, pos);
+        }
+    }
+
+    /**
+     * @return length of the whole record at {@code pos}, -1 when there is no complete, intact record
+     */
+    private static int recordLength(ByteBuffer buf, int pos) {
+        if (pos + 4 > buf.capacity()) {
+            return -1;
+        }
+        int bodyLength = buf.getInt(pos);
+        if (bodyLength <= 4 || pos + 4L + bodyLength > buf.capacity()) {
+            return -1;
+        }
+        byte[] body = new byte[bodyLength - 4];
+        ByteBuffer slice = buf.duplicate();
+        slice.position(pos + 4);
+        slice.get(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != slice.getInt()) {
+            return -1;
+        }
+        return 4 + bodyLength;
+    }
+
+    @Override
+    public void close() {
+        if (compactionTimer != -1) {
+            vertx.cancelTimer(compactionTimer);
+        }
+        try {
+            segments.values().forEach(segment -> segment.buffer.force());
+            if (lock != null) {
+                lock.release();
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            log.error("Cant close page log", e);
+        }
+    }
+
+    @Override
+    public Future<PageResult> get(String name) {
+        Entry entry = byName.get(name);
+        if (entry == null) {
+            return Future.succeededFuture(PageResult.NOT_FOUND);
+        }
+        PageRecord page = read(entry);
+        return Future.succeededFuture(new PageResult(true, entry.id, page.getContent(), page.getHtml(),
+            entry.version, entry.modified));
+    }
+
+    @Override
+    public Future<Void> create(PageRecord page) {
+        if (byName.containsKey(page.getName())) {
+            return Future.failedFuture(new IllegalStateException("Page '" + page.getName() + "' already exists"));
+        }
+        try {
+            append(PUT, nextId++, page.getName(), 0, page.getModified(), page.getContent(), page.getHtml());
+        } catch (IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        return flush();
+    }
+
+    @Override
+    public Future<List<PageRecord>> update(List<PageRecord> pages) {
+        List<PageRecord> written = new ArrayList<>(pages.size());
+        try {
+            for (PageRecord page : pages) {
+                Entry entry = byId.get(page.getId());
+                if (entry != null) {
+                    int version = entry.version + 1;
+                    append(PUT, entry.id, entry.name, version, page.getModified(), page.getContent(), page.getHtml());
+                    written.add(new PageRecord(entry.id, entry.name, page.getContent(), page.getHtml(), version,
+                        page.getModified()));
+                }
+            }
+        } catch (IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        return flush().map(written);
+    }
+
+    @Override
+    public Future<List<PageRecord>> put(List<PageRecord> pages) {
+        List<PageRecord> written = new ArrayList<>(pages.size());
+        try {
+            for (PageRecord page : pages) {
+                Entry entry = byName.get(page.getName());
+                int id = entry == null ? nextId++ : entry.id;
+                int version = entry == null ? 0 : entry.version + 1;
+                append(PUT, id, page.getName(), version, page.getModified(), page.getContent(), page.getHtml());
+                written.add(new PageRecord(id, page.getName(), page.getContent(), page.getHtml(), version,
+                    page.getModified()));
+            }
+        } catch (IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        return flush().map(written);
+    }
+
+    @Override
+    public Future<String> delete(int id) {
+        Entry entry = byId.get(id);
+        if (entry == null) {
+            return Future.succeededFuture();
+        }
+        try {
+            append(DELETE, id, entry.name, entry.version, System.currentTimeMillis(), null, null);
+        } catch (IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        return flush().map(entry.name);
+    }
+
+    @Override
+    public Future<PageList> list(String after, int limit, boolean withContent) {
+        NavigableMap<String, Entry> from = after == null ? byName : byName.tailMap(after, false);
+        List<String> names = new ArrayList<>(Math.min(limit, from.size()));
+        List<String> contents = withContent ? new ArrayList<>(Math.min(limit, from.size())) : null;
+        for (Entry entry : from.values()) {
+            if (names.size() == limit) {
+                break;
+            }
+            names.add(entry.name);
+            if (withContent) {
+                contents.add(read(entry).getContent());
+            }
+        }
+        String next = names.size() == limit ? names.get(limit - 1) : null;
+        return Future.succeededFuture(new PageList(names, contents, next));
+    }
+
+    @Override
+    public Future<List<PageRecord>> scan(int afterId, int limit) {
+        List<PageRecord> pages = new ArrayList<>(limit);
+        for (Entry entry : byId.tailMap(afterId, false).values()) {
+            if (pages.size() == limit) {
+                break;
+            }
+            pages.add(read(entry));
+        }
+        return Future.succeededFuture(pages);
+    }
+
+    @Override
+    public Future<List<RevisionRecord>> revisions(String name) {
+        List<RevisionRecord> records = new ArrayList<>();
+        for (RevisionEntry entry : revisions.getOrDefault(name, Collections.emptyList())) {
+            records.add(new RevisionRecord(name, entry.revision, entry.snapshot, entry.modified, entry.contentLength, null));
+        }
+        return Future.succeededFuture(records);
+    }
+
+    @Override
+    public Future<List<RevisionRecord>> revisionChain(String name, int revision) {
+        List<RevisionEntry> entries = revisions.getOrDefault(name, Collections.emptyList());
+        int last = revision < 0 ? entries.size() - 1 : revisionIndex(entries, revision);
+        int first = last;
+        while (first >= 0 && !entries.get(first).snapshot) {
+            first--;
+        }
+        List<RevisionRecord> chain = new ArrayList<>();
+        if (first >= 0) {
+            for (RevisionEntry entry : entries.subList(first, last + 1)) {
+                chain.add(new RevisionRecord(name, entry.revision, entry.snapshot, entry.modified, entry.contentLength,
+                    readRevisionData(entry)));
+            }
+        }
+        return Future.succeededFuture(chain);
+    }
+
+    @Override
+    public Future<Void> addRevision(RevisionRecord revision) {
+        List<RevisionEntry> entries = revisions.getOrDefault(revision.getName(), Collections.emptyList());
+        if (revisionIndex(entries, revision.getRevision()) >= 0) {
+            return Future.failedFuture(new IllegalStateException("Revision " + revision.getRevision()
+                + " of page '" + revision.getName() + "' already exists"));
+        }
+        byte[] nameBytes = bytes(revision.getName());
+        byte[] data = revision.getData();
+        int bodyLength = 1 + 4 + 4 + 8 + stringLength(nameBytes) + 1 + 4 + data.length + 4;
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyLength);
+        record.putInt(bodyLength)
+            .put(REVISION)
+            .putInt(revision.getRevision())
+            .putInt(revision.getContentLength())
+            .putLong(revision.getModified());
+        putString(record, nameBytes);
+        record.put((byte) (revision.isSnapshot() ? 1 : 0))
+            .putInt(data.length)
+            .put(data);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, bodyLength - 4);
+        record.putInt((int) crc.getValue());
+
+        try {
+            int offset = write(record.array());
+            indexRevision(revision.getName(), new RevisionEntry(revision.getRevision(), revision.isSnapshot(),
+                revision.getModified(), revision.getContentLength(), active, offset, record.capacity()));
+        } catch (IllegalStateException e) {
+            return Future.failedFuture(e);
+        }
+        return flush();
+    }
+
+    /**
+     * @return index of the revision in the list sorted by number, -1 when it is not there
+     */
+    private static int revisionIndex(List<RevisionEntry> entries, int revision) {
+        int low = 0;
+        int high = entries.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int r = entries.get(mid).revision;
+            if (r < revision) {
+                low = mid + 1;
+            } else if (r > revision) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private void indexRevision(String name, RevisionEntry entry) {
+        List<RevisionEntry> entries = revisions.computeIfAbsent(name, n -> new ArrayList<>());
+        int i = entries.size();
+        while (i > 0 && entries.get(i - 1).revision > entry.revision) {
+            i--;
+        }
+        entries.add(i, entry);
+        entry.segment.liveBytes += entry.length;
+    }
+
+    private byte[] readRevisionData(RevisionEntry entry) {
+        ByteBuffer buf = entry.segment.buffer.duplicate();
+        buf.position(entry.offset + 4 + 1 + 4 + 4 + 8);
+        readString(buf);
+        buf.get();
+        byte[] data = new byte[buf.getInt()];
+        buf.get(data);
+        return data;
+    }
+
+    private PageRecord read(Entry entry) {
+        ByteBuffer buf = entry.segment.buffer.duplicate();
+        // length, type, id, version, modified
+        buf.position(entry.offset + 4 + 1 + 4 + 4 + 8);
+        String name = readString(buf);
+        String content = readString(buf);
+        String html = readString(buf);
+        return new PageRecord(entry.id, name, content, html, entry.version, entry.modified);
+    }
+
+    private void append(byte type, int id, String name, int version, long modified, String content, String html) {
+        byte[] record = encode(type, id, name, version, modified, content, html);
+        int offset = write(record);
+        if (type == PUT) {
+            index(new Entry(id, name, version, modified, active, offset, record.length));
+        } else {
+            unindex(byName.get(name));
+        }
+    }
+
+    private static byte[] encode(byte type, int id, String name, int version, long modified, String content,
+                                 String html) {
+        byte[] nameBytes = bytes(name);
+        byte[] contentBytes = bytes(content);
+        byte[] htmlBytes = bytes(html);
+        int bodyLength = 1 + 4 + 4 + 8 + stringLength(nameBytes) + stringLength(contentBytes) + stringLength(htmlBytes) + 4;
+        ByteBuffer record = ByteBuffer.allocate(4 + bodyLength);
+        record.putInt(bodyLength)
+            .put(type)
+            .putInt(id)
+            .putInt(version)
+            .putLong(modified);
+        putString(record, nameBytes);
+        putString(record, contentBytes);
+        putString(record, htmlBytes);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 4, bodyLength - 4);
+        record.putInt((int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Copy a record to the end of the active segment, rolling to a new segment when it does not fit.
+     *
+     * @return offset of the record in the active segment
+     */
+    private int write(byte[] record) {
+        if (active.writePos + record.length > active.buffer.capacity()) {
+            if (!dirty.contains(active)) {
+                dirty.add(active);
+            }
+            try {
+                active = newSegment(active.number + 1, Math.max(segmentBytes, record.length));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cant create page log segment", e);
+            }
+        }
+        int offset = active.writePos;
+        ByteBuffer buf = active.buffer.duplicate();
+        buf.position(offset);
+        buf.put(record);
+        active.writePos += record.length;
+        if (!dirty.contains(active)) {
+            dirty.add(active);
+        }
+        return offset;
+    }
+
+    /**
+     * Create a segment with its header. Room for the header is added to {@code capacity}.
+     */
+    private Segment newSegment(int number, int capacity) throws IOException {
+        byte[] header = encode(HEADER, nextId, null, 0, System.currentTimeMillis(), null, null);
+        Segment segment = Segment.open(number, dir.resolve(String.format("segment-%08d.log", number)),
+            header.length + capacity);
+        ByteBuffer buf = segment.buffer.duplicate();
+        buf.put(header);
+        segment.writePos = header.length;
+        segments.put(number, segment);
+        dirty.add(segment);
+        return segment;
+    }
+
+    /**
+     * Completes once everything appended so far is on disk, right away when syncing is off.
+     */
+    private Future<Void> flush() {
+        if (!sync || dirty.isEmpty()) {
+            dirty.clear();
+            return Future.succeededFuture();
+        }
+        List<Segment> toForce = new ArrayList<>(dirty);
+        dirty.clear();
+        return force(toForce);
+    }
+
+    private Future<Void> force(List<Segment> toForce) {
+        if (toForce.isEmpty()) {
+            return Future.succeededFuture();
+        }
+        Future<Void> future = Future.future();
+        vertx.<Void>executeBlocking(f -> {
+            toForce.forEach(segment -> segment.buffer.force());
+            f.complete();
+        }, true, future.completer());
+        return future;
+    }
+
+    private void index(Entry entry) {
+        unindex(byName.get(entry.name));
+        unindex(byId.get(entry.id));
+        byName.put(entry.name, entry);
+        byId.put(entry.id, entry);
+        entry.segment.liveBytes += entry.length;
+    }
+
+    private void unindex(Entry entry) {
+        if (entry != null) {
+            byName.remove(entry.name, entry);
+            byId.remove(entry.id, entry);
+            entry.segment.liveBytes -= entry.length;
+        }
+    }
+
+    private void compact() {
+        if (compacting) {
+            return;
+        }
+        for (Segment segment : segments.values()) {
+            if (segment != active && segment.writePos > 0
+                && 1.0 - (double) segment.liveBytes / segment.writePos >= compactionMinGarbage) {
+                compacting = true;
+                log.info("Compacting page log segment {}: {} of {} bytes live", segment.path, segment.liveBytes, segment.writePos);
+                compactChunk(segment, 0);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Move up to {@link #COMPACTION_CHUNK} live records of the victim, then yield the event loop.
+     * Records overwritten meanwhile are no longer indexed at their old place and are skipped.
+     */
+    private void compactChunk(Segment victim, int from) {
+        ByteBuffer buf = victim.buffer.duplicate();
+        int pos = from;
+        for (int i = 0; i < COMPACTION_CHUNK && pos < victim.writePos; i++) {
+            int length = buf.getInt(pos) + 4;
+            buf.position(pos + 4);
+            byte type = buf.get();
+            if (type == HEADER) {
+                pos += length;
+                continue;
+            }
+            buf.position(pos + 4 + 1 + 4 + 4 + 8);
+            String name = readString(buf);
+            if (type == REVISION) {
+                moveRevision(victim, pos, length, name, buf.getInt(pos + 4 + 1));
+                pos += length;
+                continue;
+            }
+            Entry entry = byName.get(name);
+            if (type == PUT && entry != null && entry.segment == victim && entry.offset == pos) {
+                moveRecord(victim, pos, length, entry);
+            } else if (type == DELETE && entry == null && segments.firstKey() < victim.number) {
+                // an older segment may still hold the deleted page, the tombstone must outlive it
+                moveRecord(victim, pos, length, null);
+            }
+            pos += length;
+        }
+        if (pos < victim.writePos) {
+            int next = pos;
+            vertx.runOnContext(v -> compactChunk(victim, next));
+            return;
+        }
+        // the moved records must be on disk before their only other copy goes, even when writes are not synced
+        List<Segment> targets = new ArrayList<>(compactionTargets);
+        compactionTargets.clear();
+        flush().compose(v -> force(targets)).setHandler(res -> {
+            compacting = false;
+            if (res.failed()) {
+                log.error("Page log compaction failed to sync", res.cause());
+                return;
+            }
+            segments.remove(victim.number);
+            try {
+                Files.delete(victim.path);
+            } catch (IOException e) {
+                log.error("Cant delete compacted page log segment " + victim.path, e);
+            }
+            log.info("Compacted page log segment {}", victim.path);
+            compact();
+        });
+    }
+
+    private void moveRecord(Segment victim, int pos, int length, Entry entry) {
+        byte[] record = new byte[length];
+        ByteBuffer buf = victim.buffer.duplicate();
+        buf.position(pos);
+        buf.get(record);
+        int offset = moved(record);
+        if (entry != null) {
+            index(new Entry(entry.id, entry.name, entry.version, entry.modified, active, offset, length));
+        }
+    }
+
+    private void moveRevision(Segment victim, int pos, int length, String name, int revision) {
+        List<RevisionEntry> entries = revisions.getOrDefault(name, Collections.emptyList());
+        int i = revisionIndex(entries, revision);
+        RevisionEntry entry = i < 0 ? null : entries.get(i);
+        if (entry == null || entry.segment != victim || entry.offset != pos) {
+            return;
+        }
+        byte[] record = new byte[length];
+        ByteBuffer buf = victim.buffer.duplicate();
+        buf.position(pos);
+        buf.get(record);
+        int offset = moved(record);
+        victim.liveBytes -= length;
+        active.liveBytes += length;
+        entries.set(i, new RevisionEntry(entry.revision, entry.snapshot, entry.modified, entry.contentLength,
+            active, offset, length));
+    }
+
+    private int moved(byte[] record) {
+        int offset = write(record);
+        if (!compactionTargets.contains(active)) {
+            compactionTargets.add(active);
+        }
+        return offset;
+    }
+
+    private static byte[] bytes(String s) {
+        return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int stringLength(byte[] bytes) {
+        return 4 + (bytes == null ? 0 : bytes.length);
+    }
+
+    private static void putString(ByteBuffer buf, byte[] bytes) {
+        if (bytes == null) {
+            buf.putInt(-1);
+        } else {
+            buf.putInt(bytes.length).put(bytes);
+        }
+    }
+
+    private static String readString(ByteBuffer buf) {
+        int length = buf.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Entry {
+        private final int id;
+        private final String name;
+        private final int version;
+        private final long modified;
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private Entry(int id, String name, int version, long modified, Segment segment, int offset, int length) {
+            this.id = id;
+            this.name = name;
+            this.version = version;
+            this.modified = modified;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class RevisionEntry {
+        private final int revision;
+        private final boolean snapshot;
+        private final long modified;
+        private final int contentLength;
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        private RevisionEntry(int revision, boolean snapshot, long modified, int contentLength,
+                              Segment segment, int offset, int length) {
+            this.revision = revision;
+            this.snapshot = snapshot;
+            this.modified = modified;
+            this.contentLength = contentLength;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private static class Segment {
+        private final int number;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private int writePos;
+        private long liveBytes;
+
+        private Segment(int number, Path path, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Map the segment file, growing it to {@code capacity} bytes first when it is smaller.
+         * The mapping stays valid after the file is closed.
+         */
+        private static Segment open(int number, Path path, int capacity) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+                if (file.length() < capacity) {
+                    file.setLength(capacity);
+                }
+                return new Segment(number, path, file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length()));
+            }
+        }
+    }
+}
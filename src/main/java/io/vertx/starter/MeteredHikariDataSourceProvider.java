@@ -0,0 +1,84 @@
+package io.vertx.starter;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.spi.impl.HikariCPDataSourceProvider;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * HikariCP pools of the JDBC client publishing their 'hikaricp.*' meters to {@link WikiMetrics}. The client
+ * builds the pool from json, which cannot carry a metrics tracker, so it is set once the pool exists.
+ * <p>
+ * The Micrometer tracker of HikariCP 2.7.4 registers its gauges on the pool stats without keeping them, and
+ * Micrometer holds gauge objects weakly, so the gauges read NaN after the first GC. The tracker made here keeps
+ * the stats for as long as the pool keeps its tracker.
+ */
+public class MeteredHikariDataSourceProvider extends HikariCPDataSourceProvider {
+
+    @Override
+    public DataSource getDataSource(JsonObject config) throws SQLException {
+        DataSource dataSource = super.getDataSource(config);
+        ((HikariDataSource) dataSource).setMetricsTrackerFactory(
+            new StatsKeepingTrackerFactory(new MicrometerMetricsTrackerFactory(WikiMetrics.registry())));
+        return dataSource;
+    }
+
+    private static class StatsKeepingTrackerFactory implements MetricsTrackerFactory {
+        private final MetricsTrackerFactory delegate;
+
+        StatsKeepingTrackerFactory(MetricsTrackerFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public IMetricsTracker create(String poolName, PoolStats poolStats) {
+            return new StatsKeepingTracker(delegate.create(poolName, poolStats), poolStats);
+        }
+    }
+
+    private static class StatsKeepingTracker implements IMetricsTracker {
+        private final IMetricsTracker delegate;
+
+        /**
+         * Only referenced to keep the gauges of the delegate alive.
+         */
+        @SuppressWarnings("unused")
+        private final PoolStats poolStats;
+
+        StatsKeepingTracker(IMetricsTracker delegate, PoolStats poolStats) {
+            this.delegate = delegate;
+            this.poolStats = poolStats;
+        }
+
+        @Override
+        public void recordConnectionCreatedMillis(long connectionCreatedMillis) {
+            delegate.recordConnectionCreatedMillis(connectionCreatedMillis);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            delegate.recordConnectionAcquiredNanos(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            delegate.recordConnectionUsageMillis(elapsedBorrowedMillis);
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            delegate.recordConnectionTimeout();
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.vertx.starter;
+
+/**
+ * A request shed by {@link AdmissionControl}, to be answered with 503 and a {@code Retry-After} header.
+ */
+public class OverloadedException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int retryAfterSeconds;
+
+    public OverloadedException(String message, int retryAfterSeconds) {
+        super(message, null, false, false);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
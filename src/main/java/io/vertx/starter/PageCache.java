@@ -0,0 +1,112 @@
+package io.vertx.starter;
+
+import io.vertx.core.json.JsonObject;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-aware LRU cache of rendered pages. Capacity is measured in bytes of cached html, plain and gzipped,
+ * not in entries.
+ * <p>
+ * Not thread safe: every {@link HttpServerVerticle} instance owns its cache and touches it only from
+ * its event loop.
+ */
+public class PageCache {
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<String, RenderedPage> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    private long usedBytes;
+
+    /**
+     * Bumped on every invalidation. Renders started before an invalidation must not be cached when they finish.
+     */
+    private long generation;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public PageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public RenderedPage get(String pageName) {
+        RenderedPage page = entries.get(pageName);
+        if (page == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return page;
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Store rendered page, unless it was invalidated after {@code renderGeneration} was taken.
+     */
+    public void put(String pageName, RenderedPage rendered, long renderGeneration) {
+        if (renderGeneration != generation) {
+            return;
+        }
+        long size = sizeOf(pageName, rendered);
+        if (size > maxBytes) {
+            return;
+        }
+        RenderedPage previous = entries.put(pageName, rendered);
+        if (previous != null) {
+            usedBytes -= sizeOf(pageName, previous);
+        }
+        usedBytes += size;
+        evict();
+    }
+
+    public void invalidate(String pageName) {
+        generation++;
+        invalidations++;
+        RenderedPage removed = entries.remove(pageName);
+        if (removed != null) {
+            usedBytes -= sizeOf(pageName, removed);
+        }
+    }
+
+    public void invalidateAll() {
+        generation++;
+        invalidations++;
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public JsonObject stats() {
+        return new JsonObject()
+            .put("entries", entries.size())
+            .put("usedBytes", usedBytes)
+            .put("maxBytes", maxBytes)
+            .put("hits", hits)
+            .put("misses", misses)
+            .put("evictions", evictions)
+            .put("invalidations", invalidations);
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, RenderedPage>> it = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, RenderedPage> eldest = it.next();
+            usedBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(String pageName, RenderedPage rendered) {
+        long gzipLength = rendered.getGzipBody() == null ? 0 : rendered.getGzipBody().length();
+        return rendered.getBody().length() + gzipLength + 2L * pageName.length();
+    }
+}
@@ -0,0 +1,321 @@
+package io.vertx.starter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Line based deltas between page versions, deflate compressed.
+ * <p>
+ * A delta is a list of operations rebuilding the new version from the lines of the previous one:
+ * copy a range of previous lines, or insert new text. A snapshot is a delta with a single insert,
+ * so it applies to any previous version. Lines keep their terminators, so rebuilt text is exact.
+ * <p>
+ * Lines are matched with Myers' O(ND) algorithm after trimming the common prefix and suffix. When the
+ * versions differ in more than {@link #MAX_EDIT_DISTANCE} lines the whole middle is replaced instead,
+ * which is bigger but bounds time and memory.
+ */
+public final class PageDelta {
+
+    private static final int MAX_EDIT_DISTANCE = 1000;
+    private static final int DIFF_CONTEXT = 3;
+
+    private static final byte END = 0;
+    private static final byte COPY = 1;
+    private static final byte INSERT = 2;
+
+    private PageDelta() {
+    }
+
+    public static byte[] snapshot(String content) {
+        Encoder encoder = new Encoder();
+        encoder.insert(content);
+        return encoder.finish();
+    }
+
+    public static byte[] delta(String previous, String next) {
+        List<String> a = lines(previous);
+        List<String> b = lines(next);
+        Encoder encoder = new Encoder();
+        StringBuilder inserted = new StringBuilder();
+        int y = 0;
+        for (int[] match : matches(a, b)) {
+            for (; y < match[1]; y++) {
+                inserted.append(b.get(y));
+            }
+            if (inserted.length() > 0) {
+                encoder.insert(inserted.toString());
+                inserted.setLength(0);
+            }
+            encoder.copy(match[0], 1);
+            y = match[1] + 1;
+        }
+        for (; y < b.size(); y++) {
+            inserted.append(b.get(y));
+        }
+        if (inserted.length() > 0) {
+            encoder.insert(inserted.toString());
+        }
+        return encoder.finish();
+    }
+
+    public static String apply(String previous, byte[] delta) {
+        List<String> a = lines(previous);
+        StringBuilder sb = new StringBuilder();
+        try (DataInputStream in = new DataInputStream(new InflaterInputStream(new ByteArrayInputStream(delta)))) {
+            for (byte op = in.readByte(); op != END; op = in.readByte()) {
+                if (op == COPY) {
+                    int start = in.readInt();
+                    int count = in.readInt();
+                    for (int i = start; i < start + count; i++) {
+                        sb.append(a.get(i));
+                    }
+                } else if (op == INSERT) {
+                    byte[] bytes = new byte[in.readInt()];
+                    in.readFully(bytes);
+                    sb.append(new String(bytes, StandardCharsets.UTF_8));
+                } else {
+                    throw new IllegalArgumentException("Corrupt page delta, unknown operation " + op);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Unified diff of two versions, hunks with three lines of context.
+     */
+    public static String diff(String from, String to) {
+        List<String> a = lines(from);
+        List<String> b = lines(to);
+        // edit script, one entry per line: ' ' kept, '-' removed, '+' added
+        StringBuilder ops = new StringBuilder();
+        List<String> text = new ArrayList<>();
+        int x = 0;
+        int y = 0;
+        List<int[]> matches = matches(a, b);
+        matches.add(new int[]{a.size(), b.size()});
+        for (int[] match : matches) {
+            for (; x < match[0]; x++) {
+                ops.append('-');
+                text.add(a.get(x));
+            }
+            for (; y < match[1]; y++) {
+                ops.append('+');
+                text.add(b.get(y));
+            }
+            if (x < a.size()) {
+                ops.append(' ');
+                text.add(a.get(x));
+                x++;
+                y++;
+            }
+        }
+
+        // line numbers of both versions before each script entry
+        int[] oldLine = new int[ops.length() + 1];
+        int[] newLine = new int[ops.length() + 1];
+        for (int i = 0; i < ops.length(); i++) {
+            oldLine[i + 1] = oldLine[i] + (ops.charAt(i) != '+' ? 1 : 0);
+            newLine[i + 1] = newLine[i] + (ops.charAt(i) != '-' ? 1 : 0);
+        }
+
+        StringBuilder out = new StringBuilder();
+        int hunkEnd = 0;
+        int i = 0;
+        while (i < ops.length()) {
+            if (ops.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+            int start = Math.max(hunkEnd, i - DIFF_CONTEXT);
+            int lastChange = i;
+            for (int j = i; j < ops.length() && j - lastChange <= 2 * DIFF_CONTEXT; j++) {
+                if (ops.charAt(j) != ' ') {
+                    lastChange = j;
+                }
+            }
+            int end = Math.min(ops.length(), lastChange + 1 + DIFF_CONTEXT);
+
+            out.append("@@ -").append(range(oldLine[start], oldLine[end]))
+                .append(" +").append(range(newLine[start], newLine[end]))
+                .append(" @@\n");
+            for (int j = start; j < end; j++) {
+                String line = text.get(j);
+                out.append(ops.charAt(j)).append(line);
+                if (!line.endsWith("\n")) {
+                    out.append("\n\\ No newline at end of file\n");
+                }
+            }
+            hunkEnd = end;
+            i = end;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Hunk range of the lines after {@code from} up to {@code to}, one based. An empty range starts at the line
+     * before it, 0 at the start of the text.
+     */
+    private static String range(int from, int to) {
+        int count = to - from;
+        return (count == 0 ? from : from + 1) + "," + count;
+    }
+
+    private static List<String> lines(String text) {
+        if (text == null || text.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return new ArrayList<>(Arrays.asList(text.split("(?<=\n)")));
+    }
+
+    /**
+     * Matching line pairs {@code [indexInA, indexInB]} of a longest common subsequence, in ascending order.
+     */
+    private static List<int[]> matches(List<String> a, List<String> b) {
+        int prefix = 0;
+        while (prefix < a.size() && prefix < b.size() && a.get(prefix).equals(b.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < a.size() - prefix && suffix < b.size() - prefix
+            && a.get(a.size() - 1 - suffix).equals(b.get(b.size() - 1 - suffix))) {
+            suffix++;
+        }
+
+        List<int[]> matches = new ArrayList<>();
+        for (int i = 0; i < prefix; i++) {
+            matches.add(new int[]{i, i});
+        }
+        matches.addAll(myers(a.subList(prefix, a.size() - suffix), b.subList(prefix, b.size() - suffix), prefix));
+        for (int i = suffix; i > 0; i--) {
+            matches.add(new int[]{a.size() - i, b.size() - i});
+        }
+        return matches;
+    }
+
+    private static List<int[]> myers(List<String> a, List<String> b, int offset) {
+        int n = a.size();
+        int m = b.size();
+        List<int[]> matches = new ArrayList<>();
+        if (n == 0 || m == 0) {
+            return matches;
+        }
+        int max = Math.min(n + m, MAX_EDIT_DISTANCE);
+        // trace[d] holds the furthest x of every diagonal k in [-d, d] after step d, at index k + d
+        List<int[]> trace = new ArrayList<>();
+        int[] v = new int[2 * max + 3];
+        int vOff = max + 1;
+        int found = -1;
+        for (int d = 0; d <= max && found < 0; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x = (k == -d || (k != d && v[vOff + k - 1] < v[vOff + k + 1])) ? v[vOff + k + 1] : v[vOff + k - 1] + 1;
+                int y = x - k;
+                while (x < n && y < m && a.get(x).equals(b.get(y))) {
+                    x++;
+                    y++;
+                }
+                v[vOff + k] = x;
+                if (x >= n && y >= m) {
+                    found = d;
+                    break;
+                }
+            }
+            trace.add(Arrays.copyOfRange(v, vOff - d, vOff + d + 1));
+        }
+        if (found < 0) {
+            // too many edits, the whole middle is replaced
+            return matches;
+        }
+
+        int x = n;
+        int y = m;
+        for (int d = found; d > 0; d--) {
+            int[] prev = trace.get(d - 1);
+            int k = x - y;
+            int prevK = (k == -d || (k != d && prev[k - 1 + d - 1] < prev[k + 1 + d - 1])) ? k + 1 : k - 1;
+            int prevX = prev[prevK + d - 1];
+            int prevY = prevX - prevK;
+            while (x > prevX && y > prevY) {
+                x--;
+                y--;
+                matches.add(new int[]{x + offset, y + offset});
+            }
+            x = prevX;
+            y = prevY;
+        }
+        while (x > 0 && y > 0) {
+            x--;
+            y--;
+            matches.add(new int[]{x + offset, y + offset});
+        }
+        Collections.reverse(matches);
+        return matches;
+    }
+
+    private static class Encoder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes));
+        private int copyStart = -1;
+        private int copyCount;
+
+        private void copy(int start, int count) {
+            if (copyStart >= 0 && copyStart + copyCount == start) {
+                copyCount += count;
+                return;
+            }
+            flushCopy();
+            copyStart = start;
+            copyCount = count;
+        }
+
+        private void insert(String text) {
+            flushCopy();
+            byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+            try {
+                out.writeByte(INSERT);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void flushCopy() {
+            if (copyStart < 0) {
+                return;
+            }
+            try {
+                out.writeByte(COPY);
+                out.writeInt(copyStart);
+                out.writeInt(copyCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            copyStart = -1;
+        }
+
+        private byte[] finish() {
+            flushCopy();
+            try {
+                out.writeByte(END);
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reply to {@link ListPages}: page names in order and the cursor of the next chunk, null on the last one.
+ * Contents are null unless they were requested.
+ */
+public class PageList implements WikiMessage {
+
+    private final List<String> names;
+    private final List<String> contents;
+    private final String next;
+
+    public PageList(List<String> names, String next) {
+        this(names, null, next);
+    }
+
+    public PageList(List<String> names, List<String> contents, String next) {
+        this.names = Collections.unmodifiableList(names);
+        this.contents = contents == null ? null : Collections.unmodifiableList(contents);
+        this.next = next;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public List<String> getContents() {
+        return contents;
+    }
+
+    public String getNext() {
+        return next;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(names.size());
+        for (String name : names) {
+            WireReader.writeString(buffer, name);
+        }
+        WireReader.writeBoolean(buffer, contents != null);
+        if (contents != null) {
+            for (String content : contents) {
+                WireReader.writeString(buffer, content);
+            }
+        }
+        WireReader.writeString(buffer, next);
+    }
+
+    static PageList readFrom(WireReader reader) {
+        int size = reader.readInt();
+        List<String> names = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            names.add(reader.readString());
+        }
+        List<String> contents = null;
+        if (reader.readBoolean()) {
+            contents = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                contents.add(reader.readString());
+            }
+        }
+        return new PageList(names, contents, reader.readString());
+    }
+}
@@ -0,0 +1,49 @@
+package io.vertx.starter;
+
+/**
+ * A page as handed to and read back from a {@link WikiStore}. Depending on the operation some fields
+ * are not meaningful: writes by id ignore the name, writes by name ignore the id, and stores set the
+ * version themselves.
+ */
+public class PageRecord {
+
+    private final int id;
+    private final String name;
+    private final String content;
+    private final String html;
+    private final int version;
+    private final long modified;
+
+    public PageRecord(int id, String name, String content, String html, int version, long modified) {
+        this.id = id;
+        this.name = name;
+        this.content = content;
+        this.html = html;
+        this.version = version;
+        this.modified = modified;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public String getHtml() {
+        return html;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+}
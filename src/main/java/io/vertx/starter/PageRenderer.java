@@ -0,0 +1,123 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.ext.web.templ.TemplateEngine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs markdown and template rendering on a named shared worker pool, so a huge page never stalls
+ * the event loop. Keeps queue wait and execution time statistics to size the pool, and times the markdown
+ * and template stages separately in {@link WikiMetrics}.
+ */
+public class PageRenderer {
+
+    private final Vertx vertx;
+    private final TemplateEngine engine;
+    private final WorkerExecutor executor;
+    private final long timeoutMs;
+    private final ResponseCompression compression;
+
+    private final LongAdder renders = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAdder executionNanos = new LongAdder();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxExecutionNanos = new AtomicLong();
+
+    public PageRenderer(Vertx vertx, TemplateEngine engine, String poolName, int poolSize, long timeoutMs,
+                        ResponseCompression compression) {
+        this.vertx = vertx;
+        this.engine = engine;
+        this.timeoutMs = timeoutMs;
+        this.compression = compression;
+        this.executor = vertx.createSharedWorkerExecutor(poolName, poolSize, TimeUnit.MILLISECONDS.toNanos(timeoutMs));
+    }
+
+    /**
+     * Render template with the routing context data. When {@code markdown} is not null it is processed
+     * first and exposed to the template as 'content'. Fails with {@link TimeoutException} when the render
+     * takes longer than the configured timeout; the worker still runs to completion but its result is dropped.
+     */
+    public Future<Buffer> render(RoutingContext ctxt, String templateFile, String markdown) {
+        Future<Buffer> future = Future.future();
+        long submitted = System.nanoTime();
+
+        long timerId = vertx.setTimer(timeoutMs, t -> {
+            if (future.tryFail(new TimeoutException("Rendering of " + templateFile + " exceeded " + timeoutMs + " ms"))) {
+                timeouts.increment();
+            }
+        });
+
+        executor.<Buffer>executeBlocking(job -> {
+            long started = System.nanoTime();
+            record(queueWaitNanos, maxQueueWaitNanos, started - submitted);
+            WikiMetrics.recordRender("queue", templateFile, started - submitted);
+            if (markdown != null) {
+                ctxt.put("content", Processor.process(markdown));
+                WikiMetrics.recordRender("markdown", templateFile, System.nanoTime() - started);
+            }
+            long templateStarted = System.nanoTime();
+            engine.render(ctxt, "templates", templateFile, res -> {
+                long finished = System.nanoTime();
+                WikiMetrics.recordRender("template", templateFile, finished - templateStarted);
+                record(executionNanos, maxExecutionNanos, finished - started);
+                job.handle(res);
+            });
+        }, false, res -> {
+            vertx.cancelTimer(timerId);
+            renders.increment();
+            if (res.failed()) {
+                failures.increment();
+                future.tryFail(res.cause());
+            } else {
+                future.tryComplete(res.result());
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Build the served form of a rendered body on the render pool: gzip it when worth it and, when it goes
+     * into the page cache, copy it to direct memory.
+     */
+    public Future<RenderedPage> prepare(Buffer body, String etag, long lastModified, boolean cached) {
+        Future<RenderedPage> future = Future.future();
+        executor.<RenderedPage>executeBlocking(job -> {
+            Buffer gzipBody = compression.isEnabled() ? compression.compress(body) : null;
+            job.complete(new RenderedPage(body, gzipBody, etag, lastModified, cached));
+        }, false, future.completer());
+        return future;
+    }
+
+    public JsonObject stats() {
+        long count = Math.max(1, renders.sum());
+        return new JsonObject()
+            .put("renders", renders.sum())
+            .put("failures", failures.sum())
+            .put("timeouts", timeouts.sum())
+            .put("queueWaitAvgMs", TimeUnit.NANOSECONDS.toMillis(queueWaitNanos.sum() / count))
+            .put("queueWaitMaxMs", TimeUnit.NANOSECONDS.toMillis(maxQueueWaitNanos.get()))
+            .put("executionAvgMs", TimeUnit.NANOSECONDS.toMillis(executionNanos.sum() / count))
+            .put("executionMaxMs", TimeUnit.NANOSECONDS.toMillis(maxExecutionNanos.get()));
+    }
+
+    public void close() {
+        executor.close();
+    }
+
+    private static void record(LongAdder total, AtomicLong max, long nanos) {
+        total.add(nanos);
+        max.accumulateAndGet(nanos, Math::max);
+    }
+}
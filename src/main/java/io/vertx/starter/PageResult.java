@@ -0,0 +1,69 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reply to {@link GetPage}. When the page is not found only {@code found} is meaningful.
+ */
+public class PageResult implements WikiMessage {
+
+    public static final PageResult NOT_FOUND = new PageResult(false, -1, null, null, 0, 0);
+
+    private final boolean found;
+    private final int id;
+    private final String rawContent;
+    private final String html;
+    private final int version;
+    private final long modified;
+
+    public PageResult(boolean found, int id, String rawContent, String html, int version, long modified) {
+        this.found = found;
+        this.id = id;
+        this.rawContent = rawContent;
+        this.html = html;
+        this.version = version;
+        this.modified = modified;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getRawContent() {
+        return rawContent;
+    }
+
+    /**
+     * @return html rendered on write, null if the page was not rendered yet
+     */
+    public String getHtml() {
+        return html;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeBoolean(buffer, found);
+        buffer.appendInt(id);
+        WireReader.writeString(buffer, rawContent);
+        WireReader.writeString(buffer, html);
+        buffer.appendInt(version);
+        buffer.appendLong(modified);
+    }
+
+    static PageResult readFrom(WireReader reader) {
+        return new PageResult(reader.readBoolean(), reader.readInt(), reader.readString(), reader.readString(),
+            reader.readInt(), reader.readLong());
+    }
+}
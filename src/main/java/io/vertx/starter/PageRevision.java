@@ -0,0 +1,57 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reply to {@link GetRevision}: the content of a page as it was at a revision. When the revision is not found
+ * only {@code found} is meaningful.
+ */
+public class PageRevision implements WikiMessage {
+
+    public static final PageRevision NOT_FOUND = new PageRevision(false, 0, null, 0);
+
+    /**
+     * Stands for the empty page before its first revision, to diff the first revision against.
+     */
+    public static final PageRevision EMPTY = new PageRevision(true, 0, "", 0);
+
+    private final boolean found;
+    private final int revision;
+    private final String content;
+    private final long modified;
+
+    public PageRevision(boolean found, int revision, String content, long modified) {
+        this.found = found;
+        this.revision = revision;
+        this.content = content;
+        this.modified = modified;
+    }
+
+    public boolean isFound() {
+        return found;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeBoolean(buffer, found);
+        buffer.appendInt(revision);
+        WireReader.writeString(buffer, content);
+        buffer.appendLong(modified);
+    }
+
+    static PageRevision readFrom(WireReader reader) {
+        return new PageRevision(reader.readBoolean(), reader.readInt(), reader.readString(), reader.readLong());
+    }
+}
@@ -0,0 +1,126 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Write-behind stage for page saves. Saves of the same page arriving within the batching window are
+ * coalesced (last write wins) and the batch is handed to the writer as a whole; every waiting message
+ * is replied once the writer completes, i.e. after the batch is committed.
+ * <p>
+ * Only one batch is written at a time, so two versions of a page can never be committed out of order.
+ * Saves arriving meanwhile are queued and flushed as soon as the running batch completes, at most
+ * 'maxBatchSize' pages per batch, the rest stays queued for the next one.
+ * <p>
+ * The writer completes with the ids it stored. Saves of a page that no longer exists are replied without
+ * error, as unbatched saves are. When a batch fails its pages are written again one by one, so a failing
+ * page fails its own saves only.
+ * Not thread safe, must be used from the owning verticle's context.
+ */
+public class PageSaveBatcher {
+    private static final Logger log = LoggerFactory.getLogger(PageSaveBatcher.class);
+
+    private final Vertx vertx;
+    private final int maxBatchSize;
+    private final long maxDelayMs;
+    private final Function<List<SavePage>, Future<Set<Integer>>> writer;
+
+    private final Map<Integer, Pending> pending = new LinkedHashMap<>();
+
+    private long timerId = -1;
+    private boolean writing;
+
+    public PageSaveBatcher(Vertx vertx, int maxBatchSize, long maxDelayMs,
+                           Function<List<SavePage>, Future<Set<Integer>>> writer) {
+        this.vertx = vertx;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayMs = maxDelayMs;
+        this.writer = writer;
+    }
+
+    public void submit(SavePage save, Message<?> msg) {
+        Pending entry = pending.computeIfAbsent(save.getId(), id -> new Pending());
+        entry.save = save;
+        entry.waiters.add(msg);
+
+        if (pending.size() >= maxBatchSize) {
+            flush();
+        } else if (timerId == -1) {
+            timerId = vertx.setTimer(maxDelayMs, t -> {
+                timerId = -1;
+                flush();
+            });
+        }
+    }
+
+    private void flush() {
+        if (timerId != -1) {
+            vertx.cancelTimer(timerId);
+            timerId = -1;
+        }
+        if (writing || pending.isEmpty()) {
+            return;
+        }
+        List<Pending> batch = new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        Iterator<Pending> queued = pending.values().iterator();
+        while (batch.size() < maxBatchSize && queued.hasNext()) {
+            batch.add(queued.next());
+            queued.remove();
+        }
+        writing = true;
+
+        write(batch).setHandler(v -> {
+            writing = false;
+            flush();
+        });
+    }
+
+    /**
+     * Completes once every waiter of the batch is replied, never fails.
+     */
+    private Future<Void> write(List<Pending> batch) {
+        Future<Void> done = Future.future();
+        writer.apply(batch.stream().map(entry -> entry.save).collect(toList())).setHandler(res -> {
+            if (res.succeeded()) {
+                for (Pending entry : batch) {
+                    if (!res.result().contains(entry.save.getId())) {
+                        log.warn("Cant save page. No page with id={} found", entry.save.getId());
+                    }
+                    entry.waiters.forEach(waiter -> waiter.reply(null));
+                }
+                done.complete();
+            } else if (batch.size() == 1) {
+                batch.get(0).waiters.forEach(waiter ->
+                    waiter.fail(DatabaseVerticle.ErrorCodes.DB_ERROR.ordinal(), res.cause().getMessage()));
+                done.complete();
+            } else {
+                log.warn("Cant save batch of " + batch.size() + " pages, saving them one by one", res.cause());
+                Future<Void> alone = Future.succeededFuture();
+                for (Pending entry : batch) {
+                    alone = alone.compose(v -> write(Collections.singletonList(entry)));
+                }
+                alone.setHandler(done.completer());
+            }
+        });
+        return done;
+    }
+
+    private static class Pending {
+        private SavePage save;
+        private final List<Message<?>> waiters = new ArrayList<>(1);
+    }
+}
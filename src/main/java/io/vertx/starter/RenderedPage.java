@@ -0,0 +1,83 @@
+package io.vertx.starter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Rendered html of a page together with its http validators and, when worth it, its gzipped form.
+ * <p>
+ * Built once per render and served many times from {@link PageCache}, so everything a response needs is
+ * prepared here: the bodies of a page going into the cache are copied to direct memory, which the transport
+ * writes without copying them again, and the header values are formatted once. A page served once keeps its
+ * heap bodies, the transport copies those anyway.
+ */
+public class RenderedPage {
+
+    private final Buffer body;
+    private final Buffer gzipBody;
+    private final String etag;
+    private final String gzipEtag;
+    private final long lastModified;
+    private final String lastModifiedDate;
+
+    /**
+     * Copies the bodies when they go to direct memory, build it off the event loop.
+     *
+     * @param gzipBody     gzipped body, null when the page is served uncompressed
+     * @param etag         quoted entity tag or null when the page has no stored version yet
+     * @param lastModified epoch millis of the last write, 0 when unknown
+     * @param cached       whether the page goes into the {@link PageCache}, only then are the bodies copied
+     */
+    public RenderedPage(Buffer body, Buffer gzipBody, String etag, long lastModified, boolean cached) {
+        this.body = cached ? direct(body) : body;
+        this.gzipBody = gzipBody == null || !cached ? gzipBody : direct(gzipBody);
+        this.etag = etag;
+        this.gzipEtag = ResponseCompression.gzipEtag(etag);
+        this.lastModified = lastModified;
+        this.lastModifiedDate = lastModified > 0 ? ConditionalGet.httpDate(lastModified) : null;
+    }
+
+    /**
+     * A JDK direct buffer, released by the garbage collector once the page leaves the cache.
+     */
+    private static Buffer direct(Buffer heap) {
+        ByteBuf source = heap.getByteBuf();
+        ByteBuffer direct = ByteBuffer.allocateDirect(source.readableBytes());
+        source.getBytes(source.readerIndex(), direct);
+        direct.flip();
+        return Buffer.buffer(Unpooled.wrappedBuffer(direct));
+    }
+
+    public Buffer getBody() {
+        return body;
+    }
+
+    public Buffer getGzipBody() {
+        return gzipBody;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Entity tag of the gzipped body, see {@link ResponseCompression#gzipEtag(String)}.
+     */
+    public String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * {@code Last-Modified} header value, null when unknown.
+     */
+    public String getLastModifiedDate() {
+        return lastModifiedDate;
+    }
+}
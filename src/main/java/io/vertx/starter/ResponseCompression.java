@@ -0,0 +1,134 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip of rendered pages, done once when a page is rendered so cached pages are served compressed
+ * without compressing them again on every request. Other responses are compressed by the http server.
+ */
+public class ResponseCompression {
+
+    private final boolean enabled;
+    private final int level;
+    private final int minBytes;
+
+    /**
+     * @param level    deflate level, 1 (fastest) to 9 (smallest), clamped to that range
+     * @param minBytes bodies smaller than that are not worth compressing
+     */
+    public ResponseCompression(boolean enabled, int level, int minBytes) {
+        this.enabled = enabled;
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        this.minBytes = minBytes;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return gzipped body, null when compression is disabled, the body is too small or does not shrink
+     */
+    public Buffer compress(Buffer body) {
+        if (!enabled || body.length() < minBytes) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length() / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes) {
+            {
+                def.setLevel(level);
+            }
+        }) {
+            out.write(body.getBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.size() < body.length() ? Buffer.buffer(bytes.toByteArray()) : null;
+    }
+
+    /**
+     * True when the {@code Accept-Encoding} of the request allows gzip, explicitly or through '*'.
+     */
+    public static boolean acceptsGzip(HttpServerRequest req) {
+        return acceptsGzip(req.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    static boolean acceptsGzip(String accept) {
+        if (accept == null) {
+            return false;
+        }
+        if (accept.indexOf(';') < 0 && accept.indexOf('*') < 0) {
+            // no q-values nor wildcard, as browsers send it: scanned in place, checked on every cached page
+            return hasCoding(accept, "gzip") || hasCoding(accept, "x-gzip");
+        }
+        Boolean wildcard = null;
+        for (String part : accept.split(",")) {
+            String[] params = part.trim().split(";");
+            String coding = params[0].trim().toLowerCase();
+            boolean allowed = true;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        allowed = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        allowed = false;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return allowed;
+            }
+            if (coding.equals("*")) {
+                wildcard = allowed;
+            }
+        }
+        return wildcard != null && wildcard;
+    }
+
+    private static boolean hasCoding(String accept, String coding) {
+        int start = 0;
+        while (start <= accept.length()) {
+            int end = accept.indexOf(',', start);
+            if (end < 0) {
+                end = accept.length();
+            }
+            int from = start;
+            int to = end;
+            while (from < to && Character.isWhitespace(accept.charAt(from))) {
+                from++;
+            }
+            while (to > from && Character.isWhitespace(accept.charAt(to - 1))) {
+                to--;
+            }
+            if (to - from == coding.length() && accept.regionMatches(true, from, coding, 0, coding.length())) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    /**
+     * Entity tag of the gzipped representation. It must differ from the identity one, caches would
+     * otherwise mix them up.
+     */
+    public static String gzipEtag(String etag) {
+        if (etag == null) {
+            return null;
+        }
+        return etag.substring(0, etag.length() - 1) + "-gz\"";
+    }
+}
@@ -0,0 +1,59 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Reply to {@link ListRevisions}: revision numbers, oldest first, with their modification times
+ * and content lengths.
+ */
+public class RevisionList implements WikiMessage {
+
+    private final int[] revisions;
+    private final long[] modified;
+    private final int[] contentLengths;
+
+    public RevisionList(int[] revisions, long[] modified, int[] contentLengths) {
+        this.revisions = revisions;
+        this.modified = modified;
+        this.contentLengths = contentLengths;
+    }
+
+    public int size() {
+        return revisions.length;
+    }
+
+    public int getRevision(int i) {
+        return revisions[i];
+    }
+
+    public long getModified(int i) {
+        return modified[i];
+    }
+
+    public int getContentLength(int i) {
+        return contentLengths[i];
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(revisions.length);
+        for (int i = 0; i < revisions.length; i++) {
+            buffer.appendInt(revisions[i]);
+            buffer.appendLong(modified[i]);
+            buffer.appendInt(contentLengths[i]);
+        }
+    }
+
+    static RevisionList readFrom(WireReader reader) {
+        int size = reader.readInt();
+        int[] revisions = new int[size];
+        long[] modified = new long[size];
+        int[] contentLengths = new int[size];
+        for (int i = 0; i < size; i++) {
+            revisions[i] = reader.readInt();
+            modified[i] = reader.readLong();
+            contentLengths[i] = reader.readInt();
+        }
+        return new RevisionList(revisions, modified, contentLengths);
+    }
+}
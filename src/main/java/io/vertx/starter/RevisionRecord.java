@@ -0,0 +1,54 @@
+package io.vertx.starter;
+
+/**
+ * One stored revision of a page: a {@link PageDelta} against the previous revision, or a full snapshot.
+ * Revision numbers start at 1 and are per page name, so history survives deleting and re-creating a page.
+ */
+public class RevisionRecord {
+
+    private final String name;
+    private final int revision;
+    private final boolean snapshot;
+    private final long modified;
+    private final int contentLength;
+    private final byte[] data;
+
+    /**
+     * @param data delta or snapshot, null when only the revision list was requested
+     */
+    public RevisionRecord(String name, int revision, boolean snapshot, long modified, int contentLength, byte[] data) {
+        this.name = name;
+        this.revision = revision;
+        this.snapshot = snapshot;
+        this.modified = modified;
+        this.contentLength = contentLength;
+        this.data = data;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    /**
+     * Length in chars of the page content at this revision.
+     */
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+}
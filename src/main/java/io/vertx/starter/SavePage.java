@@ -0,0 +1,49 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Create a page ({@code newPage}) or replace content of the page with {@code id}. Replied with an empty body.
+ */
+public class SavePage implements WikiMessage {
+
+    private final int id;
+    private final String title;
+    private final String markdown;
+    private final boolean newPage;
+
+    public SavePage(int id, String title, String markdown, boolean newPage) {
+        this.id = id;
+        this.title = title;
+        this.markdown = markdown;
+        this.newPage = newPage;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getMarkdown() {
+        return markdown;
+    }
+
+    public boolean isNewPage() {
+        return newPage;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(id);
+        WireReader.writeString(buffer, title);
+        WireReader.writeString(buffer, markdown);
+        WireReader.writeBoolean(buffer, newPage);
+    }
+
+    static SavePage readFrom(WireReader reader) {
+        return new SavePage(reader.readInt(), reader.readString(), reader.readString(), reader.readBoolean());
+    }
+}
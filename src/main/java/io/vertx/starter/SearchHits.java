@@ -0,0 +1,49 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reply to {@link SearchPages}: matching page names, best first, with their BM25 scores.
+ */
+public class SearchHits implements WikiMessage {
+
+    private final List<String> names;
+    private final double[] scores;
+
+    public SearchHits(List<String> names, double[] scores) {
+        this.names = Collections.unmodifiableList(names);
+        this.scores = scores;
+    }
+
+    public List<String> getNames() {
+        return names;
+    }
+
+    public double getScore(int i) {
+        return scores[i];
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        buffer.appendInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            WireReader.writeString(buffer, names.get(i));
+            buffer.appendDouble(scores[i]);
+        }
+    }
+
+    static SearchHits readFrom(WireReader reader) {
+        int size = reader.readInt();
+        List<String> names = new ArrayList<>(size);
+        double[] scores = new double[size];
+        for (int i = 0; i < size; i++) {
+            names.add(reader.readString());
+            scores[i] = reader.readDouble();
+        }
+        return new SearchHits(names, scores);
+    }
+}
@@ -0,0 +1,216 @@
+package io.vertx.starter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * In-memory inverted index over page content with BM25 ranking.
+ * <p>
+ * Terms are kept sorted, so a query term ending with '*' matches every term with that prefix.
+ * Posting lists are primitive int arrays of page ids and term frequencies.
+ * {@link #analyze(String)} is pure and may run on a worker; everything else is not thread safe
+ * and must be called from the owning verticle's context.
+ */
+public class SearchIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final Map<String, Integer> idsByName = new HashMap<>();
+
+    /**
+     * Version indexed of every page id, deleted pages included: ids are not reused, and a read of a page that
+     * finishes after a later one must not bring older content back.
+     */
+    private final Map<Integer, Integer> versions = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * Lower-cased letter/digit tokens of the text with their frequencies.
+     */
+    public static Map<String, Integer> analyze(String text) {
+        Map<String, Integer> freqs = new HashMap<>();
+        if (text == null) {
+            return freqs;
+        }
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                freqs.merge(token, 1, Integer::sum);
+            }
+        }
+        return freqs;
+    }
+
+    /**
+     * @return false when a later version of the page is indexed already, the terms are then ignored
+     */
+    public boolean put(int id, String name, int version, Map<String, Integer> termFreqs) {
+        Integer indexed = versions.get(id);
+        if (indexed != null && indexed > version) {
+            return false;
+        }
+        versions.put(id, version);
+        Integer previousId = idsByName.get(name);
+        if (previousId != null) {
+            removeDoc(previousId);
+        }
+        if (docs.containsKey(id)) {
+            removeDoc(id);
+        }
+        int length = 0;
+        for (Map.Entry<String, Integer> term : termFreqs.entrySet()) {
+            terms.computeIfAbsent(term.getKey(), t -> new Postings()).add(id, term.getValue());
+            length += term.getValue();
+        }
+        docs.put(id, new Doc(name, length, termFreqs.keySet().toArray(new String[0])));
+        idsByName.put(name, id);
+        totalLength += length;
+        return true;
+    }
+
+    public void remove(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            removeDoc(id);
+            versions.put(id, Integer.MAX_VALUE);
+        }
+    }
+
+    public int size() {
+        return docs.size();
+    }
+
+    /**
+     * @return at most {@code limit} pages, best match first
+     */
+    public List<Hit> search(String query, int limit) {
+        if (docs.isEmpty() || query == null) {
+            return new ArrayList<>();
+        }
+        double avgLength = Math.max(1.0, (double) totalLength / docs.size());
+        Map<Integer, Double> scores = new HashMap<>();
+
+        for (String token : query.toLowerCase(Locale.ROOT).split("\\s+")) {
+            if (token.endsWith("*")) {
+                String prefix = token.substring(0, token.length() - 1);
+                if (prefix.isEmpty()) {
+                    continue;
+                }
+                NavigableMap<String, Postings> matches = terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+                matches.values().forEach(postings -> score(postings, avgLength, scores));
+            } else {
+                for (String term : analyze(token).keySet()) {
+                    Postings postings = terms.get(term);
+                    if (postings != null) {
+                        score(postings, avgLength, scores);
+                    }
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(scores.size());
+        scores.forEach((id, score) -> hits.add(new Hit(id, docs.get(id).name, score)));
+        hits.sort((a, b) -> Double.compare(b.score, a.score));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private void score(Postings postings, double avgLength, Map<Integer, Double> scores) {
+        double idf = Math.log(1 + (docs.size() - postings.size + 0.5) / (postings.size + 0.5));
+        for (int i = 0; i < postings.size; i++) {
+            int id = postings.ids[i];
+            int tf = postings.freqs[i];
+            double norm = K1 * (1 - B + B * docs.get(id).length / avgLength);
+            scores.merge(id, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+        }
+    }
+
+    private void removeDoc(int id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        idsByName.remove(doc.name, id);
+        totalLength -= doc.length;
+        for (String term : doc.terms) {
+            Postings postings = terms.get(term);
+            if (postings != null && postings.remove(id) && postings.size == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    public static class Hit {
+        private final int id;
+        private final String name;
+        private final double score;
+
+        Hit(int id, String name, double score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+
+    private static class Doc {
+        private final String name;
+        private final int length;
+        private final String[] terms;
+
+        private Doc(String name, int length, String[] terms) {
+            this.name = name;
+            this.length = length;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * Unordered page ids with the term frequency of each.
+     */
+    private static class Postings {
+        private int[] ids = new int[2];
+        private int[] freqs = new int[2];
+        private int size;
+
+        private void add(int id, int freq) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            ids[size] = id;
+            freqs[size] = freq;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    freqs[i] = freqs[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
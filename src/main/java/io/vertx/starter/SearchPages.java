@@ -0,0 +1,36 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Full-text search over page content, replied with {@link SearchHits}.
+ * Query terms ending with '*' are prefix queries.
+ */
+public class SearchPages implements WikiMessage {
+
+    private final String query;
+    private final int limit;
+
+    public SearchPages(String query, int limit) {
+        this.query = query;
+        this.limit = limit;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public void writeTo(Buffer buffer) {
+        WireReader.writeString(buffer, query);
+        buffer.appendInt(limit);
+    }
+
+    static SearchPages readFrom(WireReader reader) {
+        return new SearchPages(reader.readString(), reader.readInt());
+    }
+}
@@ -0,0 +1,102 @@
+package io.vertx.starter;
+
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.net.PemKeyCertOptions;
+
+import java.security.cert.CertificateException;
+
+/**
+ * Connection handling settings of the wiki http server, read from the verticle config.
+ * <p>
+ * HTTP/2 is offered over TLS through ALPN, which needs a JDK with ALPN support. Clear text HTTP/2 (h2c,
+ * by upgrade or prior knowledge) is always accepted next to HTTP/1.1.
+ */
+public final class ServerOptions {
+    private static final Logger log = LoggerFactory.getLogger(ServerOptions.class);
+
+    public static final String CONFIG_HTTP2 = "server.http2";
+    public static final String CONFIG_HTTP2_MAX_CONCURRENT_STREAMS = "server.http2.max-concurrent-streams";
+    public static final String CONFIG_SSL = "server.ssl";
+    public static final String CONFIG_SSL_CERT = "server.ssl.cert";
+    public static final String CONFIG_SSL_KEY = "server.ssl.key";
+    public static final String CONFIG_TCP_NO_DELAY = "server.tcp-no-delay";
+    public static final String CONFIG_TCP_FAST_OPEN = "server.tcp-fast-open";
+    public static final String CONFIG_REUSE_PORT = "server.reuse-port";
+    public static final String CONFIG_ACCEPT_BACKLOG = "server.accept-backlog";
+    public static final String CONFIG_IDLE_TIMEOUT_S = "server.idle-timeout-s";
+    public static final String CONFIG_MAX_HEADER_BYTES = "server.max-header-bytes";
+    public static final String CONFIG_MAX_INITIAL_LINE_BYTES = "server.max-initial-line-bytes";
+    public static final String CONFIG_MAX_BODY_BYTES = "server.max-body-bytes";
+
+    private static SelfSignedCertificate selfSigned;
+
+    private ServerOptions() {
+    }
+
+    public static HttpServerOptions httpServerOptions(JsonObject config, ResponseCompression compression) {
+        HttpServerOptions options = new HttpServerOptions()
+            .setCompressionSupported(compression.isEnabled())
+            .setCompressionLevel(compression.getLevel())
+            .setTcpNoDelay(config.getBoolean(CONFIG_TCP_NO_DELAY, true))
+            .setTcpFastOpen(config.getBoolean(CONFIG_TCP_FAST_OPEN, false))
+            .setReusePort(config.getBoolean(CONFIG_REUSE_PORT, false))
+            .setIdleTimeout(config.getInteger(CONFIG_IDLE_TIMEOUT_S, 0))
+            .setMaxHeaderSize(config.getInteger(CONFIG_MAX_HEADER_BYTES, HttpServerOptions.DEFAULT_MAX_HEADER_SIZE))
+            .setMaxInitialLineLength(config.getInteger(CONFIG_MAX_INITIAL_LINE_BYTES,
+                HttpServerOptions.DEFAULT_MAX_INITIAL_LINE_LENGTH))
+            .setInitialSettings(new Http2Settings()
+                .setMaxConcurrentStreams(config.getLong(CONFIG_HTTP2_MAX_CONCURRENT_STREAMS, 100L)));
+
+        int backlog = config.getInteger(CONFIG_ACCEPT_BACKLOG, -1);
+        if (backlog > 0) {
+            options.setAcceptBacklog(backlog);
+        }
+
+        if (config.getBoolean(CONFIG_SSL, false)) {
+            options.setSsl(true)
+                .setUseAlpn(config.getBoolean(CONFIG_HTTP2, true))
+                .setPemKeyCertOptions(keyCert(config));
+        }
+        return options;
+    }
+
+    /**
+     * Bytes of a buffered request body, larger bodies are answered with 413. Streamed bulk imports are not limited,
+     * one line of them is.
+     */
+    public static long maxBodyBytes(JsonObject config) {
+        return config.getLong(CONFIG_MAX_BODY_BYTES, 4L * 1024 * 1024);
+    }
+
+    /**
+     * Configured PEM files, or a self-signed certificate for 'localhost' generated once per JVM, for tests.
+     */
+    private static PemKeyCertOptions keyCert(JsonObject config) {
+        String cert = config.getString(CONFIG_SSL_CERT);
+        String key = config.getString(CONFIG_SSL_KEY);
+        if (cert != null && key != null) {
+            return new PemKeyCertOptions().setCertPath(cert).setKeyPath(key);
+        }
+        SelfSignedCertificate generated = selfSigned();
+        return new PemKeyCertOptions()
+            .setCertPath(generated.certificate().getAbsolutePath())
+            .setKeyPath(generated.privateKey().getAbsolutePath());
+    }
+
+    private static synchronized SelfSignedCertificate selfSigned() {
+        if (selfSigned == null) {
+            try {
+                selfSigned = new SelfSignedCertificate("localhost");
+            } catch (CertificateException e) {
+                throw new IllegalStateException("Cant generate a self-signed certificate", e);
+            }
+            log.warn("No '{}' and '{}' configured, serving TLS with a self-signed certificate", CONFIG_SSL_CERT, CONFIG_SSL_KEY);
+        }
+        return selfSigned;
+    }
+}
@@ -0,0 +1,65 @@
+package io.vertx.starter;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * De-duplicates concurrent calls with the same key: the first caller runs the call, callers arriving
+ * while it is in flight wait for the same result.
+ * <p>
+ * Not thread safe, must be used from the owning verticle's context.
+ */
+public class SingleFlight<T> {
+
+    private final Map<String, List<Handler<AsyncResult<T>>>> inFlight = new HashMap<>();
+
+    private long calls;
+    private long joined;
+
+    public void execute(String key, Supplier<Future<T>> call, Handler<AsyncResult<T>> handler) {
+        List<Handler<AsyncResult<T>>> waiters = inFlight.get(key);
+        if (waiters != null) {
+            joined++;
+            waiters.add(handler);
+            return;
+        }
+        calls++;
+        List<Handler<AsyncResult<T>>> flight = new ArrayList<>(1);
+        flight.add(handler);
+        inFlight.put(key, flight);
+
+        Future<T> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = Future.failedFuture(e);
+        }
+        result.setHandler(res -> {
+            inFlight.remove(key, flight);
+            flight.forEach(waiter -> waiter.handle(res));
+        });
+    }
+
+    /**
+     * Callers arriving from now on start a new call instead of joining the one in flight,
+     * e.g. because the data it is reading has just changed.
+     */
+    public void forget(String key) {
+        inFlight.remove(key);
+    }
+
+    public long calls() {
+        return calls;
+    }
+
+    public long joined() {
+        return joined;
+    }
+}
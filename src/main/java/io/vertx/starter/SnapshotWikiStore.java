@@ -0,0 +1,210 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Read-optimised in-memory snapshot in front of a durable {@link WikiStore}, so page reads and name listings
+ * do not contend with writes on the database.
+ * <p>
+ * Every page name is loaded on open and kept in sync by the write path, name listings are answered from
+ * memory. Pages are read through: a page missing from the snapshot, or loaded more than
+ * 'wikidb.snapshot.max-staleness-ms' ago, is fetched from the durable store. Writes go to the durable store
+ * and, once stored, are applied to the snapshot as the store reports them, by id with the stored name and
+ * version; a created or imported page is read from the store on first access.
+ * <p>
+ * Writes made by other database verticle instances are applied with {@link #pageChanged(String, boolean)};
+ * the staleness bound covers a missed notification. Listings with content and scans go to the durable store.
+ * Not thread safe, must be used from the owning verticle's context.
+ */
+public class SnapshotWikiStore implements WikiStore {
+    Logger log = LoggerFactory.getLogger(SnapshotWikiStore.class);
+
+    public static final String CONFIG_SNAPSHOT_ENABLED = "wikidb.snapshot.enabled";
+    public static final String CONFIG_SNAPSHOT_MAX_STALENESS_MS = "wikidb.snapshot.max-staleness-ms";
+
+    private static final int LOAD_CHUNK = 1000;
+
+    private final WikiStore store;
+    private final long maxStalenessMs;
+
+    /**
+     * Every page name, with its page once it was read. Values are null for pages not read yet.
+     */
+    private final TreeMap<String, Snapshot> pages = new TreeMap<>();
+
+    /**
+     * Bumped on every change. Reads started before a change must not fill the snapshot when they finish.
+     */
+    private long generation;
+
+    public SnapshotWikiStore(WikiStore store, JsonObject config) {
+        this.store = store;
+        this.maxStalenessMs = config.getLong(CONFIG_SNAPSHOT_MAX_STALENESS_MS, 5000L);
+    }
+
+    @Override
+    public Future<Void> open() {
+        long started = System.currentTimeMillis();
+        return store.open()
+            .compose(v -> loadNames(null))
+            .map(v -> {
+                log.info("Page snapshot loaded: {} names in {} ms", pages.size(), System.currentTimeMillis() - started);
+                return null;
+            });
+    }
+
+    private Future<Void> loadNames(String after) {
+        return store.list(after, LOAD_CHUNK, false).compose(chunk -> {
+            chunk.getNames().forEach(name -> pages.put(name, null));
+            return chunk.getNext() == null ? Future.succeededFuture() : loadNames(chunk.getNext());
+        });
+    }
+
+    @Override
+    public void close() {
+        store.close();
+    }
+
+    @Override
+    public Future<PageResult> get(String name) {
+        Snapshot snapshot = pages.get(name);
+        if (snapshot != null && System.currentTimeMillis() - snapshot.loaded <= maxStalenessMs) {
+            return Future.succeededFuture(snapshot.page);
+        }
+        long readGeneration = generation;
+        return store.get(name).map(page -> {
+            if (readGeneration == generation) {
+                if (page.isFound()) {
+                    pages.put(name, new Snapshot(page, System.currentTimeMillis()));
+                } else {
+                    pages.remove(name);
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public Future<Void> create(PageRecord page) {
+        return store.create(page).map(v -> {
+            changed(page.getName());
+            return null;
+        });
+    }
+
+    @Override
+    public Future<List<PageRecord>> update(List<PageRecord> records) {
+        return store.update(records).map(written -> {
+            written.forEach(this::updated);
+            return written;
+        });
+    }
+
+    @Override
+    public Future<List<PageRecord>> put(List<PageRecord> records) {
+        return store.put(records).map(written -> {
+            written.forEach(page -> changed(page.getName()));
+            return written;
+        });
+    }
+
+    @Override
+    public Future<String> delete(int id) {
+        return store.delete(id).map(deleted -> {
+            if (deleted != null) {
+                generation++;
+                pages.remove(deleted);
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public Future<PageList> list(String after, int limit, boolean withContent) {
+        if (withContent) {
+            return store.list(after, limit, true);
+        }
+        NavigableMap<String, Snapshot> from = after == null ? pages : pages.tailMap(after, false);
+        List<String> names = new ArrayList<>(Math.min(limit, from.size()));
+        for (String name : from.keySet()) {
+            if (names.size() == limit) {
+                break;
+            }
+            names.add(name);
+        }
+        String next = names.size() == limit ? names.get(limit - 1) : null;
+        return Future.succeededFuture(new PageList(names, next));
+    }
+
+    @Override
+    public Future<List<PageRecord>> scan(int afterId, int limit) {
+        return store.scan(afterId, limit);
+    }
+
+    @Override
+    public Future<List<RevisionRecord>> revisions(String name) {
+        return store.revisions(name);
+    }
+
+    @Override
+    public Future<List<RevisionRecord>> revisionChain(String name, int revision) {
+        return store.revisionChain(name, revision);
+    }
+
+    @Override
+    public Future<Void> addRevision(RevisionRecord revision) {
+        return store.addRevision(revision);
+    }
+
+    /**
+     * Apply a write made through another store. A null name means anything may have changed: every page is
+     * dropped and the names are loaded again.
+     */
+    public void pageChanged(String name, boolean deleted) {
+        generation++;
+        if (name == null) {
+            pages.clear();
+            loadNames(null).setHandler(res -> {
+                if (res.failed()) {
+                    log.error("Cant reload page snapshot names", res.cause());
+                }
+            });
+        } else if (deleted) {
+            pages.remove(name);
+        } else {
+            pages.put(name, null);
+        }
+    }
+
+    /**
+     * A page as the store wrote it, its name and version are the stored ones.
+     */
+    private void updated(PageRecord page) {
+        generation++;
+        pages.put(page.getName(), new Snapshot(new PageResult(true, page.getId(), page.getContent(), page.getHtml(),
+            page.getVersion(), page.getModified()), System.currentTimeMillis()));
+    }
+
+    private void changed(String name) {
+        generation++;
+        pages.put(name, null);
+    }
+
+    private static class Snapshot {
+        private final PageResult page;
+        private final long loaded;
+
+        private Snapshot(PageResult page, long loaded) {
+            this.page = page;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package io.vertx.starter;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Startup phases of this JVM and whether it is ready for traffic, served on '/ready'.
+ * <p>
+ * Static like {@link WikiMetrics}, every verticle of the JVM shares it. Phases are timed from the end of the
+ * previous one, the first from JVM start, so their sum is the time to ready.
+ */
+public final class Startup {
+    private static final Logger log = LoggerFactory.getLogger(Startup.class);
+
+    private static final long JVM_STARTED = ManagementFactory.getRuntimeMXBean().getStartTime();
+
+    private static final JsonObject PHASES = new JsonObject();
+
+    private static long lastPhaseEnded = JVM_STARTED;
+
+    private static volatile boolean ready;
+
+    private Startup() {
+    }
+
+    /**
+     * End a startup phase, it lasted since the previous one ended.
+     */
+    public static synchronized void phase(String name) {
+        long now = System.currentTimeMillis();
+        PHASES.put(name, now - lastPhaseEnded);
+        lastPhaseEnded = now;
+        log.info("Startup phase {} took {} ms", name, PHASES.getLong(name));
+    }
+
+    public static synchronized void ready() {
+        ready = true;
+        log.info("Ready {} ms after JVM start, phases (ms): {}", lastPhaseEnded - JVM_STARTED, PHASES.encode());
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    public static synchronized JsonObject stats() {
+        return new JsonObject()
+            .put("ready", ready)
+            .put("uptimeMs", System.currentTimeMillis() - JVM_STARTED)
+            .put("phasesMs", PHASES.copy());
+    }
+}
@@ -0,0 +1,113 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Replays synthetic requests against the http server of this node before it reports ready, so the first real
+ * requests do not pay for class loading, template compilation and unJITted markdown, database and gzip paths.
+ * <p>
+ * Requests are read only: the index, the page list, a search, and pages that do not exist, which render the
+ * new page template from markdown. Pages not found are not cached before the node is ready, so the warm-up
+ * leaves nothing in the page caches. Each one opens its own connection, so vert.x spreads them over every
+ * http verticle instance. Failures are counted and logged, they never fail the startup.
+ */
+public class StartupWarmup {
+    Logger log = LoggerFactory.getLogger(StartupWarmup.class);
+
+    public static final String CONFIG_WARMUP_ENABLED = "startup.warmup.enabled";
+    public static final String CONFIG_WARMUP_REQUESTS = "startup.warmup.requests";
+    public static final String CONFIG_WARMUP_CONCURRENCY = "startup.warmup.concurrency";
+
+    private static final long REQUEST_TIMEOUT_MS = 10000;
+
+    private final Vertx vertx;
+    private final JsonObject config;
+
+    private int sent;
+    private int failed;
+
+    public StartupWarmup(Vertx vertx, JsonObject config) {
+        this.vertx = vertx;
+        this.config = config;
+    }
+
+    public Future<Void> run() {
+        int requests = config.getInteger(CONFIG_WARMUP_REQUESTS, 500);
+        if (!config.getBoolean(CONFIG_WARMUP_ENABLED, true) || requests < 1) {
+            return Future.succeededFuture();
+        }
+        HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+            .setDefaultHost("localhost")
+            .setDefaultPort(config.getInteger(HttpServerVerticle.CONFIG_HTTP_SERVER_PORT, 8080))
+            .setSsl(config.getBoolean(ServerOptions.CONFIG_SSL, false))
+            .setTrustAll(true)
+            .setVerifyHost(false)
+            .setKeepAlive(false));
+
+        Future<Void> done = Future.future();
+        int concurrency = Math.min(requests, Math.max(1, config.getInteger(CONFIG_WARMUP_CONCURRENCY, 8)));
+        int[] running = {concurrency};
+        for (int i = 0; i < concurrency; i++) {
+            next(client, requests, () -> {
+                if (--running[0] == 0) {
+                    client.close();
+                    if (failed > 0) {
+                        log.warn("{} of {} warm-up requests failed", failed, requests);
+                    }
+                    done.complete();
+                }
+            });
+        }
+        return done;
+    }
+
+    private void next(HttpClient client, int requests, Runnable finished) {
+        if (sent == requests) {
+            finished.run();
+            return;
+        }
+        String uri = uri(sent++);
+        Future<Void> answered = Future.future();
+        client.get(uri, res -> {
+            if (res.statusCode() >= 500) {
+                answered.tryFail("HTTP " + res.statusCode());
+            } else {
+                res.exceptionHandler(answered::tryFail);
+                res.endHandler(v -> answered.tryComplete());
+            }
+        })
+            .putHeader(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .setTimeout(REQUEST_TIMEOUT_MS)
+            .exceptionHandler(answered::tryFail)
+            .end();
+        answered.setHandler(ar -> {
+            if (ar.failed()) {
+                failed++;
+                log.debug("Warm-up request {} failed: {}", uri, ar.cause().getMessage());
+            }
+            next(client, requests, finished);
+        });
+    }
+
+    private static String uri(int n) {
+        switch (n % 5) {
+            case 0:
+                return "/";
+            case 1:
+                return "/pages";
+            case 2:
+                return "/search?q=wiki";
+            case 3:
+                return "/wiki/warmup-" + n + "/revisions";
+            default:
+                return "/wiki/warmup-" + n;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package io.vertx.starter;
+
+import io.vertx.core.Launcher;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Vert.x launcher applying the wiki config to the vertx instance itself, before any verticle is deployed.
+ */
+public class WikiLauncher extends Launcher {
+
+    public static final String CONFIG_NATIVE_TRANSPORT = "vertx.native-transport";
+    public static final String CONFIG_CLUSTER = "vertx.cluster";
+    public static final String CONFIG_CLUSTER_HOST = "vertx.cluster.host";
+    public static final String CONFIG_CLUSTER_PORT = "vertx.cluster.port";
+
+    private JsonObject config = new JsonObject();
+
+    public static void main(String[] args) {
+        new WikiLauncher().dispatch(args);
+    }
+
+    @Override
+    public void afterConfigParsed(JsonObject config) {
+        this.config = config;
+    }
+
+    /**
+     * Native transport (epoll) is used when its library loads, vert.x falls back to NIO otherwise.
+     * <p>
+     * Clustered mode joins the Hazelcast cluster found on the classpath, '-cluster' on the command line does
+     * the same. The event bus then spans every node: 'wikidb.queue' requests reach database verticles
+     * anywhere and page events reach every http verticle.
+     */
+    @Override
+    public void beforeStartingVertx(VertxOptions options) {
+        options.setPreferNativeTransport(config.getBoolean(CONFIG_NATIVE_TRANSPORT, true));
+        if (config.getBoolean(CONFIG_CLUSTER, false)) {
+            options.setClustered(true);
+        }
+        if (config.containsKey(CONFIG_CLUSTER_HOST)) {
+            options.setClusterHost(config.getString(CONFIG_CLUSTER_HOST));
+        }
+        if (config.containsKey(CONFIG_CLUSTER_PORT)) {
+            options.setClusterPort(config.getInteger(CONFIG_CLUSTER_PORT));
+        }
+    }
+}
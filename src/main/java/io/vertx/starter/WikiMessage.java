@@ -0,0 +1,12 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+/**
+ * Message exchanged over 'wikidb.queue'. Implementations are immutable, so local delivery passes
+ * the same instance and only clustered delivery goes through {@link #writeTo(Buffer)}.
+ */
+public interface WikiMessage {
+
+    void writeTo(Buffer buffer);
+}
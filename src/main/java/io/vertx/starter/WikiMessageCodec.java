@@ -0,0 +1,76 @@
+package io.vertx.starter;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.util.function.Function;
+
+/**
+ * Event bus codec for one {@link WikiMessage} type: local delivery hands over the instance itself,
+ * clustered delivery uses the compact binary form.
+ */
+public class WikiMessageCodec<T extends WikiMessage> implements MessageCodec<T, T> {
+
+    private final Class<T> type;
+    private final Function<WireReader, T> reader;
+
+    public WikiMessageCodec(Class<T> type, Function<WireReader, T> reader) {
+        this.type = type;
+        this.reader = reader;
+    }
+
+    /**
+     * Register default codecs for every wiki message type. Safe to call from each verticle instance.
+     */
+    public static void registerAll(Vertx vertx) {
+        EventBus eventBus = vertx.eventBus();
+        register(eventBus, new WikiMessageCodec<>(GetPage.class, GetPage::readFrom));
+        register(eventBus, new WikiMessageCodec<>(SavePage.class, SavePage::readFrom));
+        register(eventBus, new WikiMessageCodec<>(DeletePage.class, DeletePage::readFrom));
+        register(eventBus, new WikiMessageCodec<>(ListPages.class, ListPages::readFrom));
+        register(eventBus, new WikiMessageCodec<>(ImportPages.class, ImportPages::readFrom));
+        register(eventBus, new WikiMessageCodec<>(SearchPages.class, SearchPages::readFrom));
+        register(eventBus, new WikiMessageCodec<>(ListRevisions.class, ListRevisions::readFrom));
+        register(eventBus, new WikiMessageCodec<>(GetRevision.class, GetRevision::readFrom));
+        register(eventBus, new WikiMessageCodec<>(PageResult.class, PageResult::readFrom));
+        register(eventBus, new WikiMessageCodec<>(PageList.class, PageList::readFrom));
+        register(eventBus, new WikiMessageCodec<>(SearchHits.class, SearchHits::readFrom));
+        register(eventBus, new WikiMessageCodec<>(RevisionList.class, RevisionList::readFrom));
+        register(eventBus, new WikiMessageCodec<>(PageRevision.class, PageRevision::readFrom));
+    }
+
+    private static <T extends WikiMessage> void register(EventBus eventBus, WikiMessageCodec<T> codec) {
+        try {
+            eventBus.registerDefaultCodec(codec.type, codec);
+        } catch (IllegalStateException alreadyRegistered) {
+            // another verticle instance of this vertx got there first
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T msg) {
+        msg.writeTo(buffer);
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        return reader.apply(new WireReader(buffer, pos));
+    }
+
+    @Override
+    public T transform(T msg) {
+        return msg;
+    }
+
+    @Override
+    public String name() {
+        return "wiki-" + type.getSimpleName();
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
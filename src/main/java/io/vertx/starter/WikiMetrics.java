@@ -0,0 +1,149 @@
+package io.vertx.starter;
+
+import com.mchange.v2.c3p0.C3P0Registry;
+import com.mchange.v2.c3p0.PooledDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.RoutingContext;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prometheus metrics of the http routes, the 'wikidb.queue' round trips, the JDBC pool and the render stages.
+ * <p>
+ * The registry is shared by every verticle instance of the JVM, meters are thread safe.
+ */
+public final class WikiMetrics {
+
+    private static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    private WikiMetrics() {
+    }
+
+    public static PrometheusMeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * First handler of the router: times the request until the response is written, tagged with
+     * the path of the route that answered it.
+     */
+    public static void routeTimer(RoutingContext ctxt) {
+        Timer.Sample sample = Timer.start(REGISTRY);
+        ctxt.addBodyEndHandler(v -> {
+            Route route = ctxt.currentRoute();
+            int status = ctxt.response().getStatusCode();
+            String path = route == null || route.getPath() == null || status == 404 ? "unmatched" : route.getPath();
+            sample.stop(Timer.builder("http.server.requests")
+                .tag("method", ctxt.request().method().name())
+                .tag("route", path)
+                .tag("status", String.valueOf(status))
+                .publishPercentileHistogram()
+                .register(REGISTRY));
+        });
+        ctxt.next();
+    }
+
+    public static void scrapeHandler(RoutingContext ctxt) {
+        ctxt.response()
+            .putHeader(HttpHeaders.CONTENT_TYPE, TextFormat.CONTENT_TYPE_004)
+            .end(REGISTRY.scrape());
+    }
+
+    /**
+     * Wraps the reply handler of a 'wikidb.queue' request to time the send-to-reply latency per message type.
+     */
+    public static <T> Handler<AsyncResult<Message<T>>> timeReply(WikiMessage request,
+                                                                  Handler<AsyncResult<Message<T>>> handler) {
+        Timer.Sample sample = Timer.start(REGISTRY);
+        return reply -> {
+            sample.stop(Timer.builder("wikidb.requests")
+                .tag("action", request.getClass().getSimpleName())
+                .tag("outcome", reply.succeeded() ? "success" : "failure")
+                .publishPercentileHistogram()
+                .register(REGISTRY));
+            handler.handle(reply);
+        };
+    }
+
+    public static void recordAdmissionRejected(String lane) {
+        Counter.builder("wikidb.admission.rejected")
+            .tag("lane", lane)
+            .register(REGISTRY)
+            .increment();
+    }
+
+    /**
+     * Blocks of a saved page rendered again, and those whose cached html was reused.
+     */
+    public static void recordMarkdownBlocks(int rendered, int reused) {
+        Counter.builder("render.markdown.blocks").tag("result", "rendered").register(REGISTRY).increment(rendered);
+        Counter.builder("render.markdown.blocks").tag("result", "reused").register(REGISTRY).increment(reused);
+    }
+
+    public static void recordPoolWait(long nanos) {
+        Timer.builder("wikidb.pool.wait")
+            .publishPercentileHistogram()
+            .register(REGISTRY)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gauges of the c3p0 pools the JDBC client creates, HikariCP pools have their own, see
+     * {@link MeteredHikariDataSourceProvider}. Registering again is a no-op.
+     */
+    public static void registerPoolGauges() {
+        Gauge.builder("wikidb.pool.connections", REGISTRY, r -> poolSum(PoolStat.TOTAL)).register(REGISTRY);
+        Gauge.builder("wikidb.pool.connections.busy", REGISTRY, r -> poolSum(PoolStat.BUSY)).register(REGISTRY);
+        Gauge.builder("wikidb.pool.connections.idle", REGISTRY, r -> poolSum(PoolStat.IDLE)).register(REGISTRY);
+        Gauge.builder("wikidb.pool.waiting", REGISTRY, r -> poolSum(PoolStat.WAITING)).register(REGISTRY);
+    }
+
+    public static void recordRender(String stage, String template, long nanos) {
+        Timer.builder("render." + stage)
+            .tag("template", template)
+            .publishPercentileHistogram()
+            .register(REGISTRY)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private enum PoolStat {
+        TOTAL, BUSY, IDLE, WAITING
+    }
+
+    private static double poolSum(PoolStat stat) {
+        double sum = 0;
+        for (Object source : C3P0Registry.getPooledDataSources()) {
+            PooledDataSource pool = (PooledDataSource) source;
+            try {
+                switch (stat) {
+                    case TOTAL:
+                        sum += pool.getNumConnectionsAllUsers();
+                        break;
+                    case BUSY:
+                        sum += pool.getNumBusyConnectionsAllUsers();
+                        break;
+                    case IDLE:
+                        sum += pool.getNumIdleConnectionsAllUsers();
+                        break;
+                    case WAITING:
+                        sum += pool.getNumThreadsAwaitingCheckoutDefaultUser();
+                        break;
+                }
+            } catch (SQLException e) {
+                return Double.NaN;
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,72 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+
+import java.util.List;
+
+/**
+ * Storage of the wiki pages behind {@link DatabaseVerticle}.
+ * <p>
+ * Every method is called from the owning verticle's context and completes its future on that context.
+ * Page html is rendered by the caller, stores keep it as given.
+ */
+public interface WikiStore {
+
+    Future<Void> open();
+
+    Future<PageResult> get(String name);
+
+    /**
+     * Insert a page, fails when a page with the same name exists.
+     */
+    Future<Void> create(PageRecord page);
+
+    /**
+     * Replace content and html of existing pages by id, bumping their version. Ids of missing pages are ignored.
+     *
+     * @return the pages written, in the given order, with the name and version they are stored with
+     */
+    Future<List<PageRecord>> update(List<PageRecord> pages);
+
+    /**
+     * Create or overwrite pages by name.
+     *
+     * @return the pages written, in the given order, with the id and version they are stored with
+     */
+    Future<List<PageRecord>> put(List<PageRecord> pages);
+
+    /**
+     * @return name of the deleted page, null when there is no page with this id
+     */
+    Future<String> delete(int id);
+
+    /**
+     * Names in name order following {@code after} (or from the first one when null), at most {@code limit}.
+     * The reply's next cursor is set when more names may follow.
+     */
+    Future<PageList> list(String after, int limit, boolean withContent);
+
+    /**
+     * Pages in id order with an id greater than {@code afterId}, at most {@code limit}, with id, name, content and
+     * version set.
+     */
+    Future<List<PageRecord>> scan(int afterId, int limit);
+
+    /**
+     * Every revision of the page, oldest first, without data.
+     */
+    Future<List<RevisionRecord>> revisions(String name);
+
+    /**
+     * Revisions of the page with data, from the last snapshot at or before {@code revision} up to it,
+     * oldest first. A negative revision stands for the latest one. Empty when there is no such revision.
+     */
+    Future<List<RevisionRecord>> revisionChain(String name, int revision);
+
+    /**
+     * Fails when the page already has a revision with this number.
+     */
+    Future<Void> addRevision(RevisionRecord revision);
+
+    void close();
+}
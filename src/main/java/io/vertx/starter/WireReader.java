@@ -0,0 +1,67 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Sequential reader of the binary form written by {@link WikiMessage#writeTo(Buffer)}.
+ */
+public final class WireReader {
+
+    private final Buffer buffer;
+    private int pos;
+
+    public WireReader(Buffer buffer, int pos) {
+        this.buffer = buffer;
+        this.pos = pos;
+    }
+
+    public int readInt() {
+        int value = buffer.getInt(pos);
+        pos += 4;
+        return value;
+    }
+
+    public long readLong() {
+        long value = buffer.getLong(pos);
+        pos += 8;
+        return value;
+    }
+
+    public double readDouble() {
+        double value = buffer.getDouble(pos);
+        pos += 8;
+        return value;
+    }
+
+    public boolean readBoolean() {
+        return buffer.getByte(pos++) != 0;
+    }
+
+    public String readString() {
+        int length = readInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = buffer.getString(pos, pos + length, StandardCharsets.UTF_8.name());
+        pos += length;
+        return value;
+    }
+
+    public static void writeBoolean(Buffer buffer, boolean value) {
+        buffer.appendByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Length prefixed utf-8, length -1 stands for null.
+     */
+    public static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            buffer.appendInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+}
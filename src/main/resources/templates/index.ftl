@@ -25,6 +25,14 @@
     <#else>
         <p>The wiki is currently empty!</p>
     </#list>
+        <nav>
+        <#if !context.firstPage>
+            <a class="btn btn-outline-primary" href="/" role="button">First</a>
+        </#if>
+        <#if context.nextPage??>
+            <a class="btn btn-outline-primary" href="/?after=${context.nextPage?url('UTF-8')}" role="button">Next</a>
+        </#if>
+        </nav>
     </div>
 
 </div>
@@ -36,7 +36,7 @@
 
     <div class="col-md-12 mt-1">
         <hr class="mt-1">
-        <p class="small">Rendered: ${context.timestamp}</p>
+        <p class="small">Last modified: ${context.timestamp}</p>
     </div>
 
 </div>
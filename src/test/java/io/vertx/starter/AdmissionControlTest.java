@@ -0,0 +1,178 @@
+package io.vertx.starter;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+@RunWith(VertxUnitRunner.class)
+public class AdmissionControlTest {
+
+    private static final String ADDRESS = "test.db";
+
+    private Vertx vertx;
+
+    /**
+     * Requests the stubbed database holds until the test replies to them, when not replying at once.
+     */
+    private final List<Message<Object>> held = new CopyOnWriteArrayList<>();
+    private boolean replyAtOnce;
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        WikiMessageCodec.registerAll(vertx);
+        vertx.eventBus().consumer(ADDRESS, msg -> {
+            if (replyAtOnce) {
+                msg.reply(null);
+            } else {
+                held.add(msg);
+            }
+        }).completionHandler(context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private AdmissionControl admission(JsonObject config) {
+        return new AdmissionControl(vertx, ADDRESS, config);
+    }
+
+    /**
+     * The requests reach the stubbed database on its own event loop, wait for them to get there.
+     */
+    private void whenHeld(int count, Runnable action) {
+        if (held.size() >= count) {
+            action.run();
+        } else {
+            vertx.setTimer(10, t -> whenHeld(count, action));
+        }
+    }
+
+    private void replyToHeld() {
+        held.forEach(msg -> msg.reply(null));
+        held.clear();
+    }
+
+    private static ListPages read() {
+        return new ListPages(null, 10, false);
+    }
+
+    private static JsonObject readStats(AdmissionControl admission) {
+        return admission.stats().getJsonObject("read");
+    }
+
+    @Test
+    public void queuesBeyondLimitAndRejectsWhenQueueIsFull(TestContext context) {
+        AdmissionControl admission = admission(new JsonObject()
+            .put("admission.read.initial-limit", 2)
+            .put("admission.read.queue-size", 1)
+            .put("admission.retry-after-s", 3));
+        Async replies = context.async(3);
+        vertx.runOnContext(start -> {
+            for (int i = 0; i < 3; i++) {
+                admission.send(read(), context.asyncAssertSuccess(reply -> replies.countDown()));
+            }
+            admission.send(read(), context.asyncAssertFailure(cause -> {
+                context.assertTrue(cause instanceof OverloadedException);
+                context.assertEquals(3, ((OverloadedException) cause).getRetryAfterSeconds());
+
+                JsonObject stats = readStats(admission);
+                context.assertEquals(2, stats.getInteger("inFlight"));
+                context.assertEquals(1, stats.getInteger("queued"));
+                context.assertEquals(1L, stats.getLong("rejected"));
+                // a reply makes room for the queued request
+                whenHeld(2, () -> {
+                    held.remove(0).reply(null);
+                    whenHeld(2, this::replyToHeld);
+                });
+            }));
+        });
+        replies.handler(context.asyncAssertSuccess(v -> {
+            JsonObject stats = readStats(admission);
+            context.assertEquals(0, stats.getInteger("inFlight"));
+            context.assertEquals(0, stats.getInteger("queued"));
+            context.assertEquals(3L, stats.getLong("sent"));
+        }));
+    }
+
+    @Test
+    public void expiresQueuedRequestsWithoutReplies(TestContext context) {
+        AdmissionControl admission = admission(new JsonObject()
+            .put("admission.read.initial-limit", 1)
+            .put("admission.read.timeout-ms", 200));
+        Async done = context.async(3);
+        vertx.runOnContext(start -> {
+            admission.send(read(), context.asyncAssertSuccess(reply -> done.countDown()));
+            // sent once the first is replied, then never replied and times out on the event bus
+            admission.send(read(), context.asyncAssertFailure(cause -> {
+                context.assertTrue(AdmissionControl.isTimeout(cause));
+                done.countDown();
+            }));
+            // waits behind the second until it expires in the queue
+            long queued = System.currentTimeMillis();
+            admission.send(read(), context.asyncAssertFailure(cause -> {
+                context.assertTrue(cause instanceof OverloadedException);
+                context.assertTrue(System.currentTimeMillis() - queued >= 200);
+                done.countDown();
+            }));
+        });
+        vertx.setTimer(50, t -> whenHeld(1, () -> held.remove(0).reply(null)));
+        done.handler(context.asyncAssertSuccess(v -> {
+            JsonObject stats = readStats(admission);
+            context.assertEquals(2L, stats.getLong("sent"));
+            context.assertEquals(1L, stats.getLong("rejected"));
+            context.assertEquals(1L, stats.getLong("timeouts"));
+            context.assertEquals(0, stats.getInteger("queued"));
+        }));
+    }
+
+    @Test
+    public void growsLimitOfBusyLaneWithFastReplies(TestContext context) {
+        replyAtOnce = true;
+        AdmissionControl admission = admission(new JsonObject()
+            .put("admission.read.initial-limit", 4)
+            .put("admission.read.target-latency-ms", 10000));
+        Async replies = context.async(20);
+        vertx.runOnContext(start -> {
+            for (int i = 0; i < 20; i++) {
+                admission.send(read(), context.asyncAssertSuccess(reply -> replies.countDown()));
+            }
+        });
+        replies.handler(context.asyncAssertSuccess(v ->
+            context.assertTrue(readStats(admission).getInteger("limit") > 4)));
+    }
+
+    @Test
+    public void cutsLimitOncePerWindowOnSlowReplies(TestContext context) {
+        AdmissionControl admission = admission(new JsonObject()
+            .put("admission.read.initial-limit", 8)
+            .put("admission.read.target-latency-ms", 0)
+            .put("admission.backoff", 0.5));
+        Async window = context.async(4);
+        vertx.runOnContext(start -> {
+            for (int i = 0; i < 4; i++) {
+                admission.send(read(), context.asyncAssertSuccess(reply -> window.countDown()));
+            }
+        });
+        whenHeld(4, this::replyToHeld);
+        window.handler(context.asyncAssertSuccess(v -> {
+            // the replies to requests sent before the cut do not cut again
+            context.assertEquals(4, readStats(admission).getInteger("limit"));
+            admission.send(read(), context.asyncAssertSuccess(reply ->
+                context.assertEquals(2, readStats(admission).getInteger("limit"))));
+            whenHeld(1, this::replyToHeld);
+        }));
+    }
+}
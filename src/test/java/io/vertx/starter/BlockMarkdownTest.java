@@ -0,0 +1,42 @@
+package io.vertx.starter;
+
+import com.github.rjeschke.txtmark.Processor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BlockMarkdownTest {
+
+    @Test
+    public void splitsIndependentBlocks() {
+        assertRendersAsWhole("# Title\n\nfirst paragraph\n\nsecond paragraph\n\n---\n\nlast\n");
+    }
+
+    @Test
+    public void keepsListItemsIndentedUpToThreeSpacesTogether() {
+        assertRendersAsWhole("para\n\n - item one\n\n - item two\n\n   3. item three\n");
+    }
+
+    @Test
+    public void keepsListAndQuoteContinuationsTogether() {
+        assertRendersAsWhole("- item\n\n  continued\n\nnext\n");
+        assertRendersAsWhole("1. item\n\n   continued\n\n2. item\n");
+        assertRendersAsWhole("> quote\n\n   continued\n\n  > more\n");
+    }
+
+    @Test
+    public void keepsCodeTogether() {
+        assertRendersAsWhole("para\n\n    code\n\n\tmore code\n\nafter\n");
+        assertRendersAsWhole("para\n\n  ```\ncode\n\nmore\n  ```\n\nafter\n");
+    }
+
+    @Test
+    public void rendersHtmlBlocksAndCommentsWhole() {
+        assertRendersAsWhole("para\n\n  <div>\nx\n\ny\n</div>\n");
+        assertRendersAsWhole("para\n\n<!-- a\n\nb -->\n\nafter\n");
+    }
+
+    private static void assertRendersAsWhole(String markdown) {
+        assertEquals(Processor.process(markdown), new BlockMarkdown(1 << 20).render(markdown));
+    }
+}
@@ -0,0 +1,70 @@
+package io.vertx.starter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConditionalGetTest {
+
+    private static final String ETAG = ConditionalGet.pageEtag(4, 2);
+    private static final long MODIFIED = 1_500_000_000_250L;
+
+    @Test
+    public void matchesEntityTagInList() {
+        assertEquals("\"4-2\"", ETAG);
+        assertTrue(ConditionalGet.isNotModified("\"4-2\"", null, ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified("\"1-1\", \"4-2\"", null, ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified("\"1-1\",\"4-2\"", null, ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified("\"1-1\", \"4-3\"", null, ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified("4-2", null, ETAG, MODIFIED));
+    }
+
+    @Test
+    public void weakTagsAndStarMatch() {
+        // If-None-Match compares weakly (RFC 7232, 3.2)
+        assertTrue(ConditionalGet.isNotModified("W/\"4-2\"", null, ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified("\"1-1\", W/\"4-2\"", null, ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified("*", null, ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified("*", null, null, MODIFIED));
+    }
+
+    @Test
+    public void ifNoneMatchWinsOverIfModifiedSince() {
+        String later = ConditionalGet.httpDate(MODIFIED + 60_000);
+        assertFalse(ConditionalGet.isNotModified("\"1-1\"", later, ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified(null, later, ETAG, MODIFIED));
+    }
+
+    @Test
+    public void comparesIfModifiedSinceInWholeSeconds() {
+        // the date drops the milliseconds of the modification time
+        String modified = ConditionalGet.httpDate(MODIFIED);
+        assertEquals("Fri, 14 Jul 2017 02:40:00 GMT", modified);
+        assertTrue(ConditionalGet.isNotModified(null, modified, ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified(null, ConditionalGet.httpDate(MODIFIED - 1000), ETAG, MODIFIED));
+        assertTrue(ConditionalGet.isNotModified(null, "Sat, 15 Jul 2017 00:00:00 GMT", ETAG, MODIFIED));
+    }
+
+    @Test
+    public void ignoresUnusableIfModifiedSince() {
+        assertFalse(ConditionalGet.isNotModified(null, "yesterday", ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified(null, "2017-07-14T02:40:00Z", ETAG, MODIFIED));
+        assertFalse(ConditionalGet.isNotModified(null, ConditionalGet.httpDate(MODIFIED), ETAG, 0));
+        assertFalse(ConditionalGet.isNotModified(null, null, ETAG, MODIFIED));
+    }
+
+    @Test
+    public void listEtagDependsOnEveryNameAndCursor() {
+        String etag = ConditionalGet.listEtag(Arrays.asList("a", "b"), null);
+        assertEquals(etag, ConditionalGet.listEtag(Arrays.asList("a", "b"), null));
+        assertNotEquals(etag, ConditionalGet.listEtag(Collections.singletonList("ab"), null));
+        assertNotEquals(etag, ConditionalGet.listEtag(Arrays.asList("a", "c"), null));
+        assertNotEquals(etag, ConditionalGet.listEtag(Arrays.asList("a", "b"), "b"));
+    }
+}
@@ -0,0 +1,272 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(VertxUnitRunner.class)
+public class LogWikiStoreTest {
+
+    /**
+     * A page record named with one char and 200 chars of content takes 238 bytes, a delete record 38 and a
+     * segment header 37, so segments of 480 bytes hold the header and two such pages.
+     */
+    private static final int SEGMENT_BYTES = 480;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Vertx vertx;
+    private JsonObject config;
+    private LogWikiStore store;
+
+    @Before
+    public void setUp() {
+        vertx = Vertx.vertx();
+        config = new JsonObject()
+            .put(LogWikiStore.CONFIG_LOG_DIR, folder.getRoot().getPath())
+            .put(LogWikiStore.CONFIG_LOG_SEGMENT_BYTES, SEGMENT_BYTES)
+            .put(LogWikiStore.CONFIG_LOG_COMPACTION_INTERVAL_MS, 0L);
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        if (store != null) {
+            store.close();
+        }
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void replaysWritesOnReopen(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> open()
+            .compose(x -> store.create(page("a", "alpha")))
+            .compose(x -> store.create(page("b", "bravo")))
+            .compose(x -> store.get("a"))
+            .compose(a -> store.update(Collections.singletonList(record(a.getId(), "a", "alpha 2")))
+                .compose(x -> store.update(Collections.singletonList(record(a.getId(), "a", "alpha 3")))))
+            .compose(x -> store.get("b"))
+            .compose(b -> store.delete(b.getId()))
+            .compose(x -> store.addRevision(new RevisionRecord("a", 1, true, 1L, 5, bytes("alpha"))))
+            .compose(x -> reopen())
+            .compose(x -> store.get("a"))
+            .compose(a -> {
+                context.assertTrue(a.isFound());
+                context.assertEquals("alpha 3", a.getRawContent());
+                context.assertEquals(2, a.getVersion());
+                return store.get("b");
+            })
+            .compose(b -> {
+                context.assertFalse(b.isFound());
+                return store.list(null, 10, false);
+            })
+            .compose(list -> {
+                context.assertEquals(Collections.singletonList("a"), list.getNames());
+                return store.revisionChain("a", 1);
+            })
+            .compose(chain -> {
+                context.assertEquals(1, chain.size());
+                context.assertEquals("alpha", new String(chain.get(0).getData(), StandardCharsets.UTF_8));
+                return store.create(page("c", "charlie"));
+            })
+            .compose(x -> store.get("c"))
+            .setHandler(context.asyncAssertSuccess(c -> {
+                context.assertEquals(2, c.getId());
+                async.complete();
+            })));
+    }
+
+    @Test
+    public void stopsReplayAtCorruptRecord(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> open()
+            .compose(x -> store.create(page("a", "first page")))
+            .compose(x -> store.create(page("b", "second page")))
+            .compose(x -> {
+                store.close();
+                corrupt(segment(1), "second page");
+                return open();
+            })
+            .compose(x -> store.get("a"))
+            .compose(a -> {
+                context.assertEquals("first page", a.getRawContent());
+                return store.get("b");
+            })
+            .compose(b -> {
+                context.assertFalse(b.isFound());
+                // the broken record is overwritten by the next write
+                return store.create(page("c", "third page"));
+            })
+            .compose(x -> reopen())
+            .compose(x -> store.list(null, 10, false))
+            .setHandler(context.asyncAssertSuccess(list -> {
+                context.assertEquals(Arrays.asList("a", "c"), list.getNames());
+                async.complete();
+            })));
+    }
+
+    @Test
+    public void stopsReplayAtTornRecord(TestContext context) {
+        Async async = context.async();
+        vertx.runOnContext(v -> open()
+            .compose(x -> store.create(page("a", "first page")))
+            .compose(x -> store.create(page("b", "second page")))
+            .compose(x -> {
+                store.close();
+                tear(segment(1), "second page");
+                return open();
+            })
+            .compose(x -> store.list(null, 10, false))
+            .setHandler(context.asyncAssertSuccess(list -> {
+                context.assertEquals(Collections.singletonList("a"), list.getNames());
+                async.complete();
+            })));
+    }
+
+    @Test
+    public void keepsTombstoneWhileOlderSegmentHoldsPage(TestContext context) {
+        config.put(LogWikiStore.CONFIG_LOG_COMPACTION_INTERVAL_MS, 10L)
+            .put(LogWikiStore.CONFIG_LOG_COMPACTION_MIN_GARBAGE, 0.6);
+        Async async = context.async();
+        // segment 1: a, b; segment 2: d, delete of a; segment 3: d again. Segment 1 stays under the garbage
+        // threshold, segment 2 is all garbage and its tombstone of a must move to segment 3.
+        vertx.runOnContext(v -> open()
+            .compose(x -> store.create(page("a", content('a'))))
+            .compose(x -> store.create(page("b", content('b'))))
+            .compose(x -> store.create(page("d", content('d'))))
+            .compose(x -> store.get("a"))
+            .compose(a -> store.delete(a.getId()))
+            .compose(x -> store.get("d"))
+            .compose(d -> store.update(Collections.singletonList(record(d.getId(), "d", content('e')))))
+            .compose(x -> deleted(segment(2)))
+            .compose(x -> {
+                context.assertTrue(Files.exists(segment(1)));
+                return reopen();
+            })
+            .compose(x -> store.list(null, 10, false))
+            .compose(list -> {
+                context.assertEquals(Arrays.asList("b", "d"), list.getNames());
+                return store.get("d");
+            })
+            .setHandler(context.asyncAssertSuccess(d -> {
+                context.assertEquals(content('e'), d.getRawContent());
+                async.complete();
+            })));
+    }
+
+    @Test
+    public void neverReusesIdsOfCompactedPages(TestContext context) {
+        config.put(LogWikiStore.CONFIG_LOG_COMPACTION_INTERVAL_MS, 10L);
+        Async async = context.async();
+        // segment 1: a, b; segment 2: both deletes; segment 3: a revision. Segments 1 and 2 are all garbage
+        // and compacted away, no record of the ids 0 and 1 is left.
+        vertx.runOnContext(v -> open()
+            .compose(x -> store.create(page("a", content('a'))))
+            .compose(x -> store.create(page("b", content('b'))))
+            .compose(x -> store.delete(0))
+            .compose(x -> store.delete(1))
+            .compose(x -> store.addRevision(new RevisionRecord("a", 1, true, 1L, 450, new byte[450])))
+            .compose(x -> deleted(segment(1)))
+            .compose(x -> deleted(segment(2)))
+            .compose(x -> reopen())
+            .compose(x -> store.create(page("c", "charlie")))
+            .compose(x -> store.get("c"))
+            .setHandler(context.asyncAssertSuccess(c -> {
+                context.assertEquals(2, c.getId());
+                async.complete();
+            })));
+    }
+
+    private Future<Void> open() {
+        store = new LogWikiStore(vertx, config);
+        return store.open();
+    }
+
+    private Future<Void> reopen() {
+        store.close();
+        return open();
+    }
+
+    /**
+     * Completes once compaction deleted the segment file.
+     */
+    private Future<Void> deleted(Path segment) {
+        Future<Void> future = Future.future();
+        vertx.setPeriodic(10, timer -> {
+            if (!Files.exists(segment)) {
+                vertx.cancelTimer(timer);
+                future.complete();
+            }
+        });
+        return future;
+    }
+
+    private Path segment(int number) {
+        return folder.getRoot().toPath().resolve(String.format("segment-%08d.log", number));
+    }
+
+    private static void corrupt(Path file, String text) {
+        update(file, text, (data, at) -> data[at] ^= 1);
+    }
+
+    /**
+     * Zero the file from the middle of the text on, as if the write had stopped there.
+     */
+    private static void tear(Path file, String text) {
+        update(file, text, (data, at) -> Arrays.fill(data, at + text.length() / 2, data.length, (byte) 0));
+    }
+
+    private static void update(Path file, String text, Edit edit) {
+        try {
+            byte[] data = Files.readAllBytes(file);
+            String raw = new String(data, StandardCharsets.ISO_8859_1);
+            int at = raw.indexOf(text);
+            if (at < 0) {
+                throw new AssertionError("'" + text + "' not found in " + file);
+            }
+            edit.apply(data, at);
+            Files.write(file, data);
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private interface Edit {
+        void apply(byte[] data, int at);
+    }
+
+    private static PageRecord page(String name, String content) {
+        return record(-1, name, content);
+    }
+
+    private static PageRecord record(int id, String name, String content) {
+        return new PageRecord(id, name, content, null, 0, System.currentTimeMillis());
+    }
+
+    private static String content(char c) {
+        char[] chars = new char[200];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,87 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class PageCacheTest {
+
+    /**
+     * A page named with one char, 2 bytes, with that much html and gzipped html.
+     */
+    private static RenderedPage page(int bodyBytes, int gzipBytes) {
+        Buffer gzipBody = gzipBytes == 0 ? null : Buffer.buffer(new byte[gzipBytes]);
+        return new RenderedPage(Buffer.buffer(new byte[bodyBytes]), gzipBody, "\"1-1\"", 0, true);
+    }
+
+    private static long usedBytes(PageCache cache) {
+        return cache.stats().getLong("usedBytes");
+    }
+
+    @Test
+    public void countsPlainAndGzippedHtmlAndName() {
+        PageCache cache = new PageCache(1000);
+        cache.put("a", page(100, 20), cache.generation());
+        assertEquals(122, usedBytes(cache));
+        cache.put("b", page(50, 0), cache.generation());
+        assertEquals(174, usedBytes(cache));
+
+        // replaced, the old entry is not counted anymore
+        cache.put("a", page(10, 5), cache.generation());
+        assertEquals(69, usedBytes(cache));
+
+        cache.invalidate("b");
+        assertEquals(17, usedBytes(cache));
+        cache.invalidate("missing");
+        assertEquals(17, usedBytes(cache));
+        cache.invalidateAll();
+        assertEquals(0, usedBytes(cache));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBeyondMaxBytes() {
+        PageCache cache = new PageCache(300);
+        cache.put("a", page(100, 20), cache.generation());
+        cache.put("b", page(100, 20), cache.generation());
+        assertNotNull(cache.get("a"));
+        cache.put("c", page(100, 20), cache.generation());
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        JsonObject stats = cache.stats();
+        assertEquals(2, (int) stats.getInteger("entries"));
+        assertEquals(244, (long) stats.getLong("usedBytes"));
+        assertEquals(1, (long) stats.getLong("evictions"));
+        assertEquals(3, (long) stats.getLong("hits"));
+        assertEquals(1, (long) stats.getLong("misses"));
+    }
+
+    @Test
+    public void skipsPagesLargerThanCache() {
+        PageCache cache = new PageCache(100);
+        cache.put("a", page(50, 0), cache.generation());
+        cache.put("b", page(90, 10), cache.generation());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(52, usedBytes(cache));
+        assertEquals(0, (long) cache.stats().getLong("evictions"));
+    }
+
+    @Test
+    public void dropsRenderStartedBeforeInvalidation() {
+        PageCache cache = new PageCache(1000);
+        long generation = cache.generation();
+        cache.invalidate("a");
+        cache.put("a", page(100, 0), generation);
+        assertNull(cache.get("a"));
+        assertEquals(0, usedBytes(cache));
+
+        cache.put("a", page(100, 0), cache.generation());
+        assertNotNull(cache.get("a"));
+    }
+}
@@ -0,0 +1,104 @@
+package io.vertx.starter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PageDeltaTest {
+
+    private static void assertRoundTrip(String previous, String next) {
+        assertEquals(next, PageDelta.apply(previous, PageDelta.delta(previous, next)));
+    }
+
+    @Test
+    public void rebuildsNextVersionFromDelta() {
+        List<String> versions = Arrays.asList(
+            "",
+            "one\n",
+            "one\ntwo\nthree\n",
+            "zero\none\nthree\n",
+            "zero\none\nthree\nfour",
+            "zero\nfour\n",
+            "\n\n\n",
+            "gr\u00fc\u00dfe\n\u65e5\u672c\u8a9e\nemoji \ud83d\ude00\n",
+            "");
+        for (String previous : versions) {
+            for (String next : versions) {
+                assertRoundTrip(previous, next);
+            }
+        }
+    }
+
+    @Test
+    public void snapshotAppliesToAnyPreviousVersion() {
+        byte[] snapshot = PageDelta.snapshot("a\nb\n");
+        assertEquals("a\nb\n", PageDelta.apply("", snapshot));
+        assertEquals("a\nb\n", PageDelta.apply("something else\n", snapshot));
+    }
+
+    @Test
+    public void deltaOfSmallEditCopiesUnchangedLines() {
+        StringBuilder previous = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            previous.append("line ").append(i).append(" of a long page\n");
+        }
+        String next = previous.toString().replace("line 1000 of", "edited line 1000 of");
+
+        assertRoundTrip(previous.toString(), next);
+        assertTrue(PageDelta.delta(previous.toString(), next).length < PageDelta.snapshot(next).length / 10);
+    }
+
+    @Test
+    public void replacesWholeMiddleBeyondMaxEditDistance() {
+        // every other line changes, 3000 edits are more than the diff looks for
+        StringBuilder previous = new StringBuilder("first\n");
+        StringBuilder next = new StringBuilder("first\n");
+        for (int i = 0; i < 1500; i++) {
+            previous.append("kept ").append(i).append('\n').append("old ").append(i).append('\n');
+            next.append("kept ").append(i).append('\n').append("new ").append(i).append('\n');
+        }
+        previous.append("last\n");
+        next.append("last\n");
+
+        assertRoundTrip(previous.toString(), next.toString());
+        String diff = PageDelta.diff(previous.toString(), next.toString());
+        // lines between the common prefix and suffix are all removed and added again
+        assertTrue(diff.startsWith("@@ -1,3002 +1,3002 @@\n first\n kept 0\n-old 0\n-kept 1\n"));
+        assertTrue(diff.contains("\n+kept 1\n"));
+    }
+
+    @Test
+    public void diffShowsChangeWithContext() {
+        String from = "1\n2\n3\n4\n5\n6\n7\n8\n9\n";
+        String to = "1\n2\n3\n4\nfive\n6\n7\n8\n9\n";
+        assertEquals("@@ -2,7 +2,7 @@\n 2\n 3\n 4\n-5\n+five\n 6\n 7\n 8\n", PageDelta.diff(from, to));
+        assertEquals("", PageDelta.diff(from, from));
+    }
+
+    @Test
+    public void diffSplitsDistantChangesIntoHunks() {
+        StringBuilder from = new StringBuilder();
+        for (int i = 1; i <= 20; i++) {
+            from.append(i).append('\n');
+        }
+        String to = from.toString().replace("\n2\n", "\ntwo\n").replace("\n19\n", "\nnineteen\n");
+        assertEquals("@@ -1,5 +1,5 @@\n 1\n-2\n+two\n 3\n 4\n 5\n"
+            + "@@ -16,5 +16,5 @@\n 16\n 17\n 18\n-19\n+nineteen\n 20\n", PageDelta.diff(from.toString(), to));
+    }
+
+    @Test
+    public void diffStartsEmptyRangeAtLineBefore() {
+        assertEquals("@@ -0,0 +1,1 @@\n+x\n", PageDelta.diff("", "x\n"));
+        assertEquals("@@ -1,1 +0,0 @@\n-x\n", PageDelta.diff("x\n", ""));
+        assertEquals("@@ -1,1 +1,2 @@\n a\n+b\n", PageDelta.diff("a\n", "a\nb\n"));
+    }
+
+    @Test
+    public void diffMarksMissingNewlineAtEnd() {
+        assertEquals("@@ -1,1 +1,1 @@\n-a\n+a\n\\ No newline at end of file\n", PageDelta.diff("a\n", "a"));
+    }
+}
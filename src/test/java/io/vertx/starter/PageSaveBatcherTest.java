@@ -0,0 +1,93 @@
+package io.vertx.starter;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+
+@RunWith(VertxUnitRunner.class)
+public class PageSaveBatcherTest {
+
+    private static final String ADDRESS = "test.saves";
+
+    /**
+     * The writer stores every page but this one, which does not exist.
+     */
+    private static final int MISSING_ID = 7;
+
+    /**
+     * The writer fails every batch holding this page.
+     */
+    private static final int FAILING_ID = 13;
+
+    private Vertx vertx;
+    private final List<List<Integer>> batches = new ArrayList<>();
+
+    @Before
+    public void setUp(TestContext context) {
+        vertx = Vertx.vertx();
+        PageSaveBatcher batcher = new PageSaveBatcher(vertx, 3, 20, this::write);
+        vertx.eventBus().<Integer>consumer(ADDRESS, msg -> batcher.submit(
+            new SavePage(msg.body(), "page " + msg.body(), "content", false), msg))
+            .completionHandler(context.asyncAssertSuccess());
+    }
+
+    @After
+    public void tearDown(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    private Future<Set<Integer>> write(List<SavePage> saves) {
+        List<Integer> ids = saves.stream().map(SavePage::getId).collect(toList());
+        batches.add(ids);
+        if (ids.contains(FAILING_ID)) {
+            return Future.failedFuture("cannot write page " + FAILING_ID);
+        }
+        return Future.succeededFuture(ids.stream().filter(id -> id != MISSING_ID).collect(toSet()));
+    }
+
+    @Test
+    public void repliesToSaveOfMissingPageWithoutError(TestContext context) {
+        Async replies = context.async(2);
+        vertx.eventBus().send(ADDRESS, 1, context.asyncAssertSuccess(reply -> replies.countDown()));
+        vertx.eventBus().send(ADDRESS, MISSING_ID, context.asyncAssertSuccess(reply -> replies.countDown()));
+        replies.handler(context.asyncAssertSuccess(v ->
+            context.assertEquals(Collections.singletonList(Arrays.asList(1, MISSING_ID)), batches)));
+    }
+
+    @Test
+    public void failsOnlyTheSavesOfTheFailingPage(TestContext context) {
+        Async replies = context.async(3);
+        vertx.eventBus().send(ADDRESS, 1, context.asyncAssertSuccess(reply -> replies.countDown()));
+        vertx.eventBus().send(ADDRESS, FAILING_ID, context.asyncAssertFailure(cause -> replies.countDown()));
+        vertx.eventBus().send(ADDRESS, 2, context.asyncAssertSuccess(reply -> replies.countDown()));
+        replies.handler(context.asyncAssertSuccess(v -> context.assertEquals(Arrays.asList(
+            Arrays.asList(1, FAILING_ID, 2),
+            Collections.singletonList(1), Collections.singletonList(FAILING_ID), Collections.singletonList(2)),
+            batches)));
+    }
+
+    @Test
+    public void splitsBatchesAtMaxSize(TestContext context) {
+        Async replies = context.async(4);
+        for (int id = 1; id <= 4; id++) {
+            vertx.eventBus().send(ADDRESS, id, context.asyncAssertSuccess(reply -> replies.countDown()));
+        }
+        replies.handler(context.asyncAssertSuccess(v -> context.assertEquals(Arrays.asList(
+            Arrays.asList(1, 2, 3), Collections.singletonList(4)), batches)));
+    }
+}
@@ -0,0 +1,90 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCompressionTest {
+
+    @Test
+    public void acceptsGzipListedWithoutParameters() {
+        // the fast path, no q-values nor wildcard
+        assertTrue(ResponseCompression.acceptsGzip("gzip"));
+        assertTrue(ResponseCompression.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCompression.acceptsGzip("deflate,gzip"));
+        assertTrue(ResponseCompression.acceptsGzip("br ,  GZIP "));
+        assertTrue(ResponseCompression.acceptsGzip("x-gzip"));
+        assertFalse(ResponseCompression.acceptsGzip("deflate, br"));
+        assertFalse(ResponseCompression.acceptsGzip("gzipped, xgzip"));
+        assertFalse(ResponseCompression.acceptsGzip(""));
+        assertFalse(ResponseCompression.acceptsGzip((String) null));
+    }
+
+    @Test
+    public void honoursQualityValues() {
+        assertTrue(ResponseCompression.acceptsGzip("gzip;q=0.5, deflate"));
+        assertTrue(ResponseCompression.acceptsGzip("deflate;q=1.0, gzip ; q=0.001"));
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCompression.acceptsGzip("deflate, gzip;q=0.000"));
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=high"));
+    }
+
+    @Test
+    public void wildcardAppliesWhenGzipIsNotListed() {
+        assertTrue(ResponseCompression.acceptsGzip("*"));
+        assertTrue(ResponseCompression.acceptsGzip("deflate, *;q=0.1"));
+        assertFalse(ResponseCompression.acceptsGzip("*;q=0"));
+        assertFalse(ResponseCompression.acceptsGzip("gzip;q=0, *"));
+        assertTrue(ResponseCompression.acceptsGzip("gzip, *;q=0"));
+    }
+
+    @Test
+    public void compressesLargeEnoughBodiesThatShrink() throws IOException {
+        StringBuilder page = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            page.append("<p>Lorem ipsum dolor sit amet</p>\n");
+        }
+        Buffer body = Buffer.buffer(page.toString());
+        Buffer gzipped = new ResponseCompression(true, 6, 1024).compress(body);
+        assertTrue(gzipped.length() < body.length());
+        assertEquals(page.toString(), gunzip(gzipped));
+
+        assertNull(new ResponseCompression(false, 6, 1024).compress(body));
+        assertNull(new ResponseCompression(true, 6, body.length() + 1).compress(body));
+        // random looking bytes do not shrink
+        assertNull(new ResponseCompression(true, 6, 0).compress(Buffer.buffer("x7Qz")));
+    }
+
+    @Test
+    public void clampsLevel() {
+        assertEquals(1, new ResponseCompression(true, 0, 0).getLevel());
+        assertEquals(9, new ResponseCompression(true, 12, 0).getLevel());
+    }
+
+    @Test
+    public void gzipEtagDiffersFromIdentityOne() {
+        assertEquals("\"4-2-gz\"", ResponseCompression.gzipEtag("\"4-2\""));
+        assertNull(ResponseCompression.gzipEtag(null));
+    }
+
+    private static String gunzip(Buffer gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBytes()))) {
+            byte[] chunk = new byte[4096];
+            for (int n = in.read(chunk); n > 0; n = in.read(chunk)) {
+                out.write(chunk, 0, n);
+            }
+        }
+        return out.toString("UTF-8");
+    }
+}
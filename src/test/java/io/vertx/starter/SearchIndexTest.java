@@ -0,0 +1,49 @@
+package io.vertx.starter;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+
+    @Test
+    public void findsPagesByTermAndPrefix() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Fruit", 0, SearchIndex.analyze("Apple and banana, apple pie"));
+        index.put(2, "Trees", 0, SearchIndex.analyze("Apple trees and oaks"));
+
+        List<SearchIndex.Hit> hits = index.search("apple", 10);
+        assertEquals(2, hits.size());
+        assertEquals("Fruit", hits.get(0).getName());
+        assertEquals("Trees", index.search("oak*", 10).get(0).getName());
+        assertTrue(index.search("cherry", 10).isEmpty());
+    }
+
+    @Test
+    public void keepsLatestVersionWhenReadsFinishOutOfOrder() {
+        SearchIndex index = new SearchIndex();
+        assertTrue(index.put(1, "Page", 3, SearchIndex.analyze("newer")));
+        assertFalse(index.put(1, "Page", 2, SearchIndex.analyze("older")));
+
+        assertEquals(1, index.size());
+        assertEquals(1, index.search("newer", 10).size());
+        assertTrue(index.search("older", 10).isEmpty());
+    }
+
+    @Test
+    public void lateReadDoesNotBringDeletedPageBack() {
+        SearchIndex index = new SearchIndex();
+        index.put(1, "Page", 0, SearchIndex.analyze("content"));
+        index.remove("Page");
+        assertFalse(index.put(1, "Page", 0, SearchIndex.analyze("content")));
+        assertEquals(0, index.size());
+
+        // created again, under a new id
+        assertTrue(index.put(2, "Page", 0, SearchIndex.analyze("content")));
+        assertEquals(1, index.search("content", 10).size());
+    }
+}
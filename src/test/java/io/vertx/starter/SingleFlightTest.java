@@ -0,0 +1,83 @@
+package io.vertx.starter;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SingleFlightTest {
+
+    private final SingleFlight<String> flights = new SingleFlight<>();
+    private final List<Future<String>> calls = new ArrayList<>();
+    private final List<AsyncResult<String>> results = new ArrayList<>();
+
+    private Future<String> call() {
+        Future<String> call = Future.future();
+        calls.add(call);
+        return call;
+    }
+
+    @Test
+    public void joinsCallInFlightWithSameKey() {
+        flights.execute("page", this::call, results::add);
+        flights.execute("page", this::call, results::add);
+        flights.execute("other", this::call, results::add);
+        assertEquals(2, calls.size());
+        assertTrue(results.isEmpty());
+
+        calls.get(0).complete("content");
+        assertEquals(2, results.size());
+        assertEquals("content", results.get(0).result());
+        assertEquals("content", results.get(1).result());
+        assertEquals(2, flights.calls());
+        assertEquals(1, flights.joined());
+    }
+
+    @Test
+    public void startsNewCallOnceDone() {
+        flights.execute("page", () -> Future.succeededFuture("first"), results::add);
+        flights.execute("page", () -> Future.succeededFuture("second"), results::add);
+        assertEquals("first", results.get(0).result());
+        assertEquals("second", results.get(1).result());
+        assertEquals(2, flights.calls());
+        assertEquals(0, flights.joined());
+    }
+
+    @Test
+    public void failsEveryWaiter() {
+        flights.execute("page", this::call, results::add);
+        flights.execute("page", this::call, results::add);
+        calls.get(0).fail("db down");
+        assertEquals(2, results.size());
+        assertTrue(results.stream().allMatch(res -> res.failed() && res.cause().getMessage().equals("db down")));
+
+        flights.execute("page", () -> {
+            throw new IllegalStateException("no call");
+        }, results::add);
+        assertTrue(results.get(2).cause() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void forgottenCallDoesNotTakeLaterCallers() {
+        flights.execute("page", this::call, results::add);
+        flights.forget("page");
+        flights.execute("page", this::call, results::add);
+        assertEquals(2, calls.size());
+
+        // the forgotten call ends on its own, the newer one stays in flight
+        calls.get(0).complete("stale");
+        flights.execute("page", this::call, results::add);
+        assertEquals(2, calls.size());
+        calls.get(1).complete("fresh");
+
+        assertEquals(3, results.size());
+        assertEquals("stale", results.get(0).result());
+        assertEquals("fresh", results.get(1).result());
+        assertEquals("fresh", results.get(2).result());
+    }
+}
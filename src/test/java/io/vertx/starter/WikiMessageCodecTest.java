@@ -0,0 +1,166 @@
+package io.vertx.starter;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WikiMessageCodecTest {
+
+    private static final String PREFIX = "prefix";
+    private static final String END = "end";
+
+    /**
+     * Writes the message between other data and reads it back, the reader must stop right after it.
+     */
+    private static <T extends WikiMessage> T roundTrip(T msg, Function<WireReader, T> readFrom) {
+        Buffer buffer = Buffer.buffer(PREFIX);
+        msg.writeTo(buffer);
+        WireReader.writeString(buffer, END);
+        WireReader reader = new WireReader(buffer, PREFIX.length());
+        T decoded = readFrom.apply(reader);
+        assertEquals(END, reader.readString());
+        return decoded;
+    }
+
+    @Test
+    public void codecDecodesFromPositionAndPassesLocalMessagesAsIs() {
+        WikiMessageCodec<GetPage> codec = new WikiMessageCodec<>(GetPage.class, GetPage::readFrom);
+        Buffer buffer = Buffer.buffer(PREFIX);
+        codec.encodeToWire(buffer, new GetPage("Home"));
+        assertEquals("Home", codec.decodeFromWire(PREFIX.length(), buffer).getName());
+
+        GetPage msg = new GetPage("Home");
+        assertSame(msg, codec.transform(msg));
+        assertEquals("wiki-GetPage", codec.name());
+        assertEquals(-1, codec.systemCodecID());
+    }
+
+    @Test
+    public void requests() {
+        // multi byte characters, the length prefix counts bytes
+        assertEquals("Gr\u00fc\u00dfe \u65e5\u672c", roundTrip(new GetPage("Gr\u00fc\u00dfe \u65e5\u672c"),
+            GetPage::readFrom).getName());
+
+        SavePage save = roundTrip(new SavePage(42, "Title", "# markdown\n", true), SavePage::readFrom);
+        assertEquals(42, save.getId());
+        assertEquals("Title", save.getTitle());
+        assertEquals("# markdown\n", save.getMarkdown());
+        assertTrue(save.isNewPage());
+
+        DeletePage delete = roundTrip(new DeletePage(7, "Old"), DeletePage::readFrom);
+        assertEquals(7, delete.getId());
+        assertEquals("Old", delete.getTitle());
+
+        ListPages list = roundTrip(new ListPages("Apple", 50, true), ListPages::readFrom);
+        assertEquals("Apple", list.getAfter());
+        assertEquals(50, list.getLimit());
+        assertTrue(list.isWithContent());
+
+        SearchPages search = roundTrip(new SearchPages("apple pie", 10), SearchPages::readFrom);
+        assertEquals("apple pie", search.getQuery());
+        assertEquals(10, search.getLimit());
+
+        assertEquals("Home", roundTrip(new ListRevisions("Home"), ListRevisions::readFrom).getName());
+
+        GetRevision revision = roundTrip(new GetRevision("Home", 3), GetRevision::readFrom);
+        assertEquals("Home", revision.getName());
+        assertEquals(3, revision.getRevision());
+    }
+
+    @Test
+    public void nullsAreWrittenAsMinusOneLength() {
+        Buffer buffer = Buffer.buffer();
+        WireReader.writeString(buffer, null);
+        assertEquals(-1, buffer.getInt(0));
+        assertEquals(4, buffer.length());
+
+        SavePage save = roundTrip(new SavePage(1, "Title", null, false), SavePage::readFrom);
+        assertNull(save.getMarkdown());
+        assertFalse(save.isNewPage());
+        assertNull(roundTrip(new ListPages(null, 10), ListPages::readFrom).getAfter());
+        assertEquals("", roundTrip(new GetPage(""), GetPage::readFrom).getName());
+    }
+
+    @Test
+    public void importPages() {
+        ImportPages pages = roundTrip(new ImportPages(Arrays.asList("A", "B"), Arrays.asList("a\n", "")),
+            ImportPages::readFrom);
+        assertEquals(Arrays.asList("A", "B"), pages.getNames());
+        assertEquals(Arrays.asList("a\n", ""), pages.getContents());
+
+        assertEquals(0, roundTrip(new ImportPages(Collections.emptyList(), Collections.emptyList()),
+            ImportPages::readFrom).size());
+    }
+
+    @Test
+    public void pageResults() {
+        PageResult page = roundTrip(new PageResult(true, 5, "# md", "<h1>md</h1>", 2, 1234L), PageResult::readFrom);
+        assertTrue(page.isFound());
+        assertEquals(5, page.getId());
+        assertEquals("# md", page.getRawContent());
+        assertEquals("<h1>md</h1>", page.getHtml());
+        assertEquals(2, page.getVersion());
+        assertEquals(1234L, page.getModified());
+
+        PageResult notRendered = roundTrip(new PageResult(true, 5, "# md", null, 2, 1234L), PageResult::readFrom);
+        assertNull(notRendered.getHtml());
+
+        PageResult notFound = roundTrip(PageResult.NOT_FOUND, PageResult::readFrom);
+        assertFalse(notFound.isFound());
+        assertNull(notFound.getRawContent());
+    }
+
+    @Test
+    public void pageLists() {
+        PageList names = roundTrip(new PageList(Arrays.asList("A", "B"), "B"), PageList::readFrom);
+        assertEquals(Arrays.asList("A", "B"), names.getNames());
+        assertNull(names.getContents());
+        assertEquals("B", names.getNext());
+
+        PageList last = roundTrip(new PageList(Collections.singletonList("A"), Collections.singletonList("a"), null),
+            PageList::readFrom);
+        assertEquals(Collections.singletonList("a"), last.getContents());
+        assertNull(last.getNext());
+    }
+
+    @Test
+    public void searchHits() {
+        SearchHits hits = roundTrip(new SearchHits(Arrays.asList("A", "B"), new double[]{2.5, 0.125}),
+            SearchHits::readFrom);
+        assertEquals(Arrays.asList("A", "B"), hits.getNames());
+        assertEquals(2.5, hits.getScore(0), 0);
+        assertEquals(0.125, hits.getScore(1), 0);
+        assertTrue(roundTrip(new SearchHits(Collections.emptyList(), new double[0]), SearchHits::readFrom)
+            .getNames().isEmpty());
+    }
+
+    @Test
+    public void revisions() {
+        RevisionList list = roundTrip(new RevisionList(new int[]{1, 2}, new long[]{100L, 200L}, new int[]{10, 0}),
+            RevisionList::readFrom);
+        assertEquals(2, list.size());
+        assertArrayEquals(new int[]{1, 2}, new int[]{list.getRevision(0), list.getRevision(1)});
+        assertArrayEquals(new long[]{100L, 200L}, new long[]{list.getModified(0), list.getModified(1)});
+        assertArrayEquals(new int[]{10, 0}, new int[]{list.getContentLength(0), list.getContentLength(1)});
+
+        PageRevision revision = roundTrip(new PageRevision(true, 3, "content", 300L), PageRevision::readFrom);
+        assertTrue(revision.isFound());
+        assertEquals(3, revision.getRevision());
+        assertEquals("content", revision.getContent());
+        assertEquals(300L, revision.getModified());
+
+        PageRevision notFound = roundTrip(PageRevision.NOT_FOUND, PageRevision::readFrom);
+        assertFalse(notFound.isFound());
+        assertNull(notFound.getContent());
+    }
+}